@@ -0,0 +1,232 @@
+package nz.ac.auckland.se281;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Replays recorded command scripts through {@link Main}, to measure the whole command line
+ * interface rather than the graph alone: parsing each line, formatting messages and printing.
+ *
+ * <p>Each line of a script is run as if typed at the prompt, with the output sent to a null sink,
+ * and is timed along with the bytes its thread allocated. Lines are grouped by their commands,
+ * and each group reports its median and 99th percentile latency. Scripts are recorded by running
+ * the CLI with {@code --record FILE}; lines that are blank or start with "//" are skipped.
+ *
+ * <p>Run with {@code ./mvnw -P benchmark compile exec:java@replay -Dexec.args="src/jmh/scripts/
+ * properties.txt"}. Each script runs in a fresh session, first for the warmup runs and then for the
+ * measured ones, which are set with {@code --warmup RUNS} and {@code --repeat RUNS}. Cached results
+ * would answer the measured runs without doing their work, so the results cache is off unless
+ * {@code -Dgraph.cache.dir=DIRECTORY} asks for it.
+ */
+public class ReplayBenchmark {
+
+  private static final PrintStream NULL_SINK = new PrintStream(OutputStream.nullOutputStream());
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private final Map<String, Samples> samples = new TreeMap<>();
+
+  private long commands;
+
+  private long nanos;
+
+  /** The latencies and allocations of one group of commands. */
+  private static class Samples {
+    private long[] latencies = new long[16];
+    private int count;
+    private long allocated;
+
+    /**
+     * Adds one run of the commands.
+     *
+     * @param latency How long it took, in nanoseconds.
+     * @param bytes How many bytes it allocated.
+     */
+    private void add(final long latency, final long bytes) {
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+      latencies[count++] = latency;
+      allocated += bytes;
+    }
+
+    /**
+     * Returns a percentile of the latencies, by nearest rank.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The latency in microseconds.
+     */
+    private long percentile(final double percentile) {
+      final long[] sorted = Arrays.copyOf(latencies, count);
+      Arrays.sort(sorted);
+      final int rank = (int) Math.ceil(percentile / 100 * count);
+      return sorted[Math.max(0, rank - 1)] / 1000;
+    }
+  }
+
+  /**
+   * Runs a script in a fresh session, until it ends or exits.
+   *
+   * @param lines The lines of the script.
+   * @param measure If the runs should be measured, or are only warming up.
+   */
+  public void replay(final List<String> lines, final boolean measure) {
+    // The session only reads the lines it is given here, never its scanner.
+    final Main main = new Main(new Scanner(""));
+
+    for (final String line : lines) {
+      final long allocatedBefore = allocated();
+      final long start = System.nanoTime();
+
+      System.out.print(Main.COMMAND_PREFIX);
+      final boolean more = main.processLine(line);
+
+      final long latency = System.nanoTime() - start;
+      final long bytes = allocated() - allocatedBefore;
+      if (measure) {
+        samples.computeIfAbsent(group(line), key -> new Samples()).add(latency, bytes);
+        commands++;
+        nanos += latency;
+      }
+
+      if (!more) {
+        return;
+      }
+    }
+  }
+
+  /** Prints each group's latencies and allocations, then the overall throughput. */
+  public void printResults() {
+    for (final Map.Entry<String, Samples> entry : samples.entrySet()) {
+      final Samples group = entry.getValue();
+      MessageCli.REPLAY_COMMAND.printMessage(
+          entry.getKey(),
+          String.valueOf(group.count),
+          String.valueOf(group.percentile(50)),
+          String.valueOf(group.percentile(99)),
+          HeapUsage.format(group.allocated / group.count));
+    }
+
+    MessageCli.REPLAY_SUMMARY.printMessage(
+        String.valueOf(commands),
+        String.valueOf(nanos / 1_000_000),
+        String.valueOf(commands * 1_000_000_000L / Math.max(1, nanos)));
+  }
+
+  /**
+   * Names the group of a line, by the commands on it.
+   *
+   * @param line The line.
+   * @return The commands separated by ';', as a background command is run with a trailing '&'.
+   */
+  private static String group(final String line) {
+    final StringJoiner group = new StringJoiner("; ");
+    for (final String input : line.split(";")) {
+      if (!input.isBlank()) {
+        final Command command = Main.parseCommand(input);
+        final String name = command != null ? command.name() : "UNKNOWN";
+        group.add(input.trim().endsWith("&") ? name + " &" : name);
+      }
+    }
+    return group.toString();
+  }
+
+  /**
+   * Returns the bytes the current thread has allocated so far.
+   *
+   * @return The allocated bytes, or 0 if they are not measured by this JVM.
+   */
+  private static long allocated() {
+    if (!THREADS.isThreadAllocatedMemorySupported()) {
+      return 0;
+    }
+    return THREADS.getCurrentThreadAllocatedBytes();
+  }
+
+  /**
+   * Reads a script, skipping blank lines and comments.
+   *
+   * @param script The script.
+   * @return The lines to run.
+   * @throws IOException If the script cannot be read.
+   */
+  private static List<String> read(final Path script) throws IOException {
+    final List<String> lines = new ArrayList<>();
+    for (final String line : Files.readAllLines(script, StandardCharsets.UTF_8)) {
+      if (!line.isBlank() && !line.trim().startsWith("//")) {
+        lines.add(line.trim());
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Replays the given scripts and prints the results.
+   *
+   * @param args Optionally "--warmup RUNS" and "--repeat RUNS", then the scripts to replay.
+   */
+  public static void main(final String[] args) {
+    int warmup = 3;
+    int repeat = 10;
+    final List<List<String>> scripts = new ArrayList<>();
+
+    try {
+      int i = 0;
+      for (; i + 1 < args.length && args[i].startsWith("--"); i += 2) {
+        if (args[i].equals("--warmup")) {
+          warmup = Integer.parseInt(args[i + 1]);
+        } else if (args[i].equals("--repeat")) {
+          repeat = Integer.parseInt(args[i + 1]);
+        } else {
+          throw new IllegalArgumentException(args[i]);
+        }
+      }
+      if (i == args.length || warmup < 0 || repeat < 1) {
+        throw new IllegalArgumentException("Expected a script");
+      }
+
+      for (; i < args.length; i++) {
+        try {
+          scripts.add(read(Path.of(args[i])));
+        } catch (final IOException e) {
+          MessageCli.REPLAY_READ_FAILED.printMessage(args[i]);
+          return;
+        }
+      }
+    } catch (final IllegalArgumentException e) {
+      MessageCli.REPLAY_USAGE.printMessage();
+      return;
+    }
+
+    if (System.getProperty(ResultCache.DIRECTORY_PROPERTY) == null) {
+      System.setProperty(ResultCache.DIRECTORY_PROPERTY, "");
+    }
+
+    final ReplayBenchmark benchmark = new ReplayBenchmark();
+    final PrintStream report = System.out;
+    System.setOut(NULL_SINK);
+    try {
+      for (int run = 0; run < warmup + repeat; run++) {
+        for (final List<String> script : scripts) {
+          benchmark.replay(script, run >= warmup);
+        }
+      }
+    } finally {
+      System.setOut(report);
+    }
+    benchmark.printResults();
+  }
+}
@@ -0,0 +1,146 @@
+package nz.ac.auckland.se281.benchmark;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import nz.ac.auckland.se281.GraphGenerator;
+import nz.ac.auckland.se281.datastructures.Edge;
+import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.Representation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of how {@link Graph} operations scale, on graphs generated by {@link GraphGenerator}
+ * far larger than the bundled test cases.
+ *
+ * <p>The graphs are generated straight into memory rather than parsed, so a trial of millions of
+ * edges starts in seconds. As in {@link GraphBenchmark}, each property check runs on a graph of its
+ * own, built before each iteration, as every iteration times a single invocation.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class GeneratedGraphBenchmark {
+
+  /** The verticies and edges of a generated graph, generated once per trial. */
+  @State(Scope.Benchmark)
+  public static class Contents {
+    @Param({"DAG", "POWER_LAW", "EQUIVALENCE_UNIFORM", "CLOSURE"})
+    public GraphGenerator.Family family;
+
+    @Param({"100000", "1000000"})
+    public int verticies;
+
+    @Param({"5"})
+    public double parameter;
+
+    @Param({"AUTO", "CSR", "BIT_MATRIX", "HASH"})
+    public Representation representation;
+
+    Set<Integer> vertexSet;
+    Set<Edge<Integer>> edges;
+
+    /**
+     * Generates the graph.
+     *
+     * @throws IOException Never, as the edges are not written anywhere.
+     */
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+      vertexSet = new HashSet<>();
+      for (int vertex = 0; vertex < verticies; vertex++) {
+        vertexSet.add(vertex);
+      }
+      edges = new LinkedHashSet<>();
+      new GraphGenerator(family, verticies, parameter, 281)
+          .generate((source, destination) -> edges.add(new Edge<>(source, destination)));
+    }
+
+    /**
+     * Builds a graph of the generated verticies and edges.
+     *
+     * @return The graph.
+     */
+    Graph<Integer> build() {
+      return new Graph<>(vertexSet, edges, representation);
+    }
+  }
+
+  /** A graph built once for the whole trial. */
+  @State(Scope.Benchmark)
+  public static class Built {
+    Graph<Integer> graph;
+
+    /**
+     * Builds the graph.
+     *
+     * @param contents The generated graph.
+     */
+    @Setup(Level.Trial)
+    public void build(final Contents contents) {
+      graph = contents.build();
+    }
+  }
+
+  /** A graph built for each iteration, so its property counters have not been taken yet. */
+  @State(Scope.Thread)
+  public static class Fresh {
+    Graph<Integer> graph;
+
+    /**
+     * Builds the graph.
+     *
+     * @param contents The generated graph.
+     */
+    @Setup(Level.Iteration)
+    public void build(final Contents contents) {
+      graph = contents.build();
+    }
+  }
+
+  @Benchmark
+  public Graph<Integer> construct(final Contents contents) {
+    return contents.build();
+  }
+
+  @Benchmark
+  public Set<Integer> getRoots(final Built built) {
+    return built.graph.getRoots();
+  }
+
+  @Benchmark
+  public boolean isSymmetric(final Fresh fresh) {
+    return fresh.graph.isSymmetric();
+  }
+
+  @Benchmark
+  public boolean isTransitive(final Fresh fresh) {
+    return fresh.graph.isTransitive();
+  }
+
+  @Benchmark
+  public List<Integer> iterativeBreadthFirstSearch(final Built built) {
+    return built.graph.iterativeBreadthFirstSearch();
+  }
+
+  @Benchmark
+  public List<Integer> iterativeDepthFirstSearch(final Built built) {
+    return built.graph.iterativeDepthFirstSearch();
+  }
+}
@@ -0,0 +1,230 @@
+package nz.ac.auckland.se281.benchmark;
+
+import com.paypal.digraph.parser.GraphEdge;
+import com.paypal.digraph.parser.GraphNode;
+import com.paypal.digraph.parser.GraphParser;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import nz.ac.auckland.se281.datastructures.Edge;
+import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.Representation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of every {@link Graph} operation on the bundled test cases.
+ *
+ * <p>Run with {@code ./mvnw -P benchmark compile exec:exec@benchmark}, which reports the
+ * allocation rate of each operation too. Pass other JMH options through {@code -Djmh.args}, such
+ * as {@code -Djmh.args="GraphBenchmark.isTransitive -p testcase=test-100k.txt"} to run one
+ * operation on one test case, as all of them take a while.
+ *
+ * <p>A graph counts its self-loops and unmatched edges the first time a property needs them, then
+ * answers from the counters, so each property check runs on a graph of its own. Rather than build
+ * it in a setup for each invocation, whose timestamps would swamp the quickest checks, the checks
+ * are timed single shot in batches of {@value Fresh#BATCH}, each on one of as many graphs built
+ * before the batch, so their scores are the time of a whole batch. Roots, equivalence classes and
+ * searches run on one graph built for the whole trial.
+ *
+ * <p>Each test case is held as {@link Representation#AUTO} chooses and as each representation it
+ * can choose from. A bit matrix is limited in size, so a test case too large for one is held as
+ * {@link Representation#AUTO} chooses instead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+// The recursive searches recurse once per vertex on the path, which the 100k graph exceeds.
+@Fork(value = 1, jvmArgsAppend = "-Xss256m")
+public class GraphBenchmark {
+
+  /** The verticies and edges of a test case, read once per trial. */
+  @State(Scope.Benchmark)
+  public static class Contents {
+    @Param({
+      "2-subgraphs.txt", "a.txt", "b.txt", "c.txt", "d.txt", "e.txt", "f.txt", "g.txt", "h.txt",
+      "i.txt", "j.txt", "k.txt", "l.txt", "m.txt", "n.txt", "o.txt", "p.txt", "test-one.txt",
+      "useless-root.txt", "test-100k.txt"
+    })
+    public String testcase;
+
+    @Param({"AUTO", "CSR", "BIT_MATRIX", "HASH"})
+    public Representation representation;
+
+    Set<String> verticies;
+    Set<Edge<String>> edges;
+
+    /**
+     * Reads the test case, in the same order as the calculator does.
+     *
+     * @throws IOException If the test case cannot be read.
+     */
+    @Setup(Level.Trial)
+    public void read() throws IOException {
+      try (FileInputStream input = new FileInputStream("testcases/" + testcase)) {
+        final GraphParser parser = new GraphParser(input);
+        verticies = new LinkedHashSet<>();
+        for (final GraphNode node : parser.getNodes().values()) {
+          verticies.add(node.getId());
+        }
+        edges = new LinkedHashSet<>();
+        for (final GraphEdge edge : parser.getEdges().values()) {
+          edges.add(new Edge<>(edge.getNode1().getId(), edge.getNode2().getId()));
+        }
+      }
+    }
+
+    /**
+     * Builds a graph of the test case.
+     *
+     * @return The graph.
+     */
+    Graph<String> build() {
+      return new Graph<>(verticies, edges, representation);
+    }
+  }
+
+  /** A graph built once for the whole trial. */
+  @State(Scope.Benchmark)
+  public static class Built {
+    Graph<String> graph;
+    String vertex;
+
+    /**
+     * Builds the graph, and picks the vertex whose equivalence class is computed.
+     *
+     * @param contents The test case.
+     */
+    @Setup(Level.Trial)
+    public void build(final Contents contents) {
+      graph = contents.build();
+      vertex = graph.getVerticesInInsertionOrder().get(0);
+    }
+  }
+
+  /**
+   * A graph for each invocation of a batch, built before the batch, so none has had its property
+   * counters taken yet when it is checked.
+   */
+  @State(Scope.Thread)
+  public static class Fresh {
+    /** How many checks are timed together, as one of the quickest is too short to time alone. */
+    static final int BATCH = 32;
+
+    private final List<Graph<String>> graphs = new ArrayList<>(BATCH);
+    private int next;
+
+    /**
+     * Builds a graph for each invocation of the next batch.
+     *
+     * @param contents The test case.
+     */
+    @Setup(Level.Iteration)
+    public void build(final Contents contents) {
+      graphs.clear();
+      for (int i = 0; i < BATCH; i++) {
+        graphs.add(contents.build());
+      }
+      next = 0;
+    }
+
+    /**
+     * Takes the graph for the next invocation of the batch.
+     *
+     * @return The graph, whose property counters have not been taken.
+     */
+    Graph<String> next() {
+      return graphs.get(next++);
+    }
+  }
+
+  @Benchmark
+  public Graph<String> construct(final Contents contents) {
+    return contents.build();
+  }
+
+  @Benchmark
+  public Set<String> getRoots(final Built built) {
+    return built.graph.getRoots();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 10, batchSize = Fresh.BATCH)
+  @Measurement(iterations = 20, batchSize = Fresh.BATCH)
+  public boolean isReflexive(final Fresh fresh) {
+    return fresh.next().isReflexive();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 10, batchSize = Fresh.BATCH)
+  @Measurement(iterations = 20, batchSize = Fresh.BATCH)
+  public boolean isSymmetric(final Fresh fresh) {
+    return fresh.next().isSymmetric();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 10, batchSize = Fresh.BATCH)
+  @Measurement(iterations = 20, batchSize = Fresh.BATCH)
+  public boolean isAntiSymmetric(final Fresh fresh) {
+    return fresh.next().isAntiSymmetric();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 10, batchSize = Fresh.BATCH)
+  @Measurement(iterations = 20, batchSize = Fresh.BATCH)
+  public boolean isTransitive(final Fresh fresh) {
+    return fresh.next().isTransitive();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 10, batchSize = Fresh.BATCH)
+  @Measurement(iterations = 20, batchSize = Fresh.BATCH)
+  public boolean isEquivalence(final Fresh fresh) {
+    return fresh.next().isEquivalence();
+  }
+
+  @Benchmark
+  public Set<String> getEquivalenceClass(final Built built) {
+    return built.graph.getEquivalenceClass(built.vertex);
+  }
+
+  @Benchmark
+  public List<String> iterativeBreadthFirstSearch(final Built built) {
+    return built.graph.iterativeBreadthFirstSearch();
+  }
+
+  @Benchmark
+  public List<String> iterativeDepthFirstSearch(final Built built) {
+    return built.graph.iterativeDepthFirstSearch();
+  }
+
+  @Benchmark
+  public List<String> recursiveBreadthFirstSearch(final Built built) {
+    return built.graph.recursiveBreadthFirstSearch();
+  }
+
+  @Benchmark
+  public List<String> recursiveDepthFirstSearch(final Built built) {
+    return built.graph.recursiveDepthFirstSearch();
+  }
+}
@@ -0,0 +1,216 @@
+package nz.ac.auckland.se281;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The commands that one session is running in the background.
+ *
+ * <p>Each job runs on a shared pool of daemon threads, and its output is captured rather than
+ * printed, so it does not interrupt the commands typed meanwhile. Waiting for a job prints its
+ * output. Cancelling a job interrupts its thread, which the graph's checks and searches notice
+ * within a vertex.
+ *
+ * <p>Finished jobs hold their output until they are waited for, so only the most recent {@value
+ * #MAX_FINISHED} are kept, and older ones are forgotten as new jobs start.
+ */
+public class BackgroundJobs {
+
+  private static final ExecutorService EXECUTOR =
+      Executors.newCachedThreadPool(
+          runnable -> {
+            final Thread thread = new Thread(runnable, "graph-calculator-job");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /** How many finished jobs keep their output to be waited for. */
+  static final int MAX_FINISHED = 16;
+
+  private final Map<Integer, Job> jobs = new TreeMap<>();
+
+  private int nextId = 1;
+
+  /** A command running in the background. */
+  private static class Job {
+    private final String command;
+    private final long start = System.nanoTime();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private volatile long end;
+    private Future<?> future;
+
+    private Job(final String command) {
+      this.command = command;
+    }
+
+    /**
+     * Returns how long the job has run for, or ran for if it has finished.
+     *
+     * @return The elapsed milliseconds.
+     */
+    private long getElapsedMillis() {
+      final long finish = end;
+      return ((finish != 0 ? finish : System.nanoTime()) - start) / 1_000_000;
+    }
+
+    /**
+     * Returns the job's state, as shown by the jobs command.
+     *
+     * @return The state.
+     */
+    private String getState() {
+      if (future.isCancelled()) {
+        return "Cancelled";
+      } else if (!future.isDone()) {
+        return "Running";
+      }
+
+      try {
+        future.get();
+        return "Done";
+      } catch (ExecutionException | InterruptedException e) {
+        return "Failed";
+      }
+    }
+  }
+
+  /**
+   * Starts running a command in the background.
+   *
+   * @param command The command as it was typed.
+   * @param task Runs the command, printing its output.
+   */
+  public void submit(final String command, final Runnable task) {
+    final SessionOutput output = SessionOutput.install();
+    final Job job = new Job(command);
+    final int id = nextId++;
+
+    job.future =
+        EXECUTOR.submit(
+            () -> {
+              output.begin(new PrintStream(job.output, true, StandardCharsets.UTF_8));
+              try {
+                task.run();
+              } finally {
+                output.end();
+                job.end = System.nanoTime();
+              }
+            });
+    jobs.put(id, job);
+    MessageCli.JOB_STARTED.printMessage(String.valueOf(id), command);
+    forgetOldFinished();
+  }
+
+  /** Forgets the oldest finished jobs and their output, beyond the most recent that are kept. */
+  private void forgetOldFinished() {
+    int finished = 0;
+    for (final Job job : jobs.values()) {
+      if (job.future.isDone()) {
+        finished++;
+      }
+    }
+
+    final Iterator<Map.Entry<Integer, Job>> iterator = jobs.entrySet().iterator();
+    while (finished > MAX_FINISHED && iterator.hasNext()) {
+      final Map.Entry<Integer, Job> entry = iterator.next();
+      if (entry.getValue().future.isDone()) {
+        iterator.remove();
+        finished--;
+        MessageCli.JOB_FORGOTTEN.printMessage(
+            String.valueOf(entry.getKey()),
+            entry.getValue().command,
+            String.valueOf(MAX_FINISHED));
+      }
+    }
+  }
+
+  /** Prints the state of each job that has not yet been waited for or cancelled. */
+  public void printJobs() {
+    if (jobs.isEmpty()) {
+      MessageCli.NO_JOBS.printMessage();
+      return;
+    }
+
+    for (final Map.Entry<Integer, Job> entry : jobs.entrySet()) {
+      final Job job = entry.getValue();
+      MessageCli.JOB_STATUS.printMessage(
+          String.valueOf(entry.getKey()),
+          job.getState(),
+          job.command,
+          String.valueOf(job.getElapsedMillis()));
+    }
+  }
+
+  /**
+   * Waits for a job to finish, then prints its output and forgets it.
+   *
+   * @param idStr The id of the job.
+   */
+  public void waitFor(final String idStr) {
+    final Job job = find(idStr);
+    if (job == null) {
+      return;
+    }
+
+    try {
+      job.future.get();
+      System.out.print(job.output.toString(StandardCharsets.UTF_8));
+    } catch (final CancellationException e) {
+      MessageCli.JOB_CANCELLED.printMessage(idStr, job.command);
+    } catch (final ExecutionException e) {
+      MessageCli.JOB_FAILED.printMessage(idStr, job.command, String.valueOf(e.getCause()));
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    jobs.remove(Integer.valueOf(idStr));
+  }
+
+  /**
+   * Cancels a job and forgets it. A job that has already finished is left to be waited for.
+   *
+   * @param idStr The id of the job.
+   */
+  public void cancel(final String idStr) {
+    final Job job = find(idStr);
+    if (job == null) {
+      return;
+    }
+
+    if (job.future.cancel(true)) {
+      jobs.remove(Integer.valueOf(idStr));
+      MessageCli.JOB_CANCELLED.printMessage(idStr, job.command);
+    } else {
+      MessageCli.JOB_ALREADY_FINISHED.printMessage(idStr, job.command);
+    }
+  }
+
+  /**
+   * Finds a job by its id, printing an error if there is none.
+   *
+   * @param idStr The id of the job.
+   * @return The job, or null if there is none.
+   */
+  private Job find(final String idStr) {
+    Job job = null;
+    try {
+      job = jobs.get(Integer.valueOf(idStr));
+    } catch (final NumberFormatException e) {
+      // Not a number, so not a job.
+    }
+
+    if (job == null) {
+      MessageCli.JOB_NOT_FOUND.printMessage(idStr);
+    }
+    return job;
+  }
+}
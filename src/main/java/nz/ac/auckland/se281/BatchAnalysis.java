@@ -0,0 +1,165 @@
+package nz.ac.auckland.se281;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import nz.ac.auckland.se281.datastructures.Graph;
+
+/**
+ * Runs the same commands on many test cases at once.
+ *
+ * <p>Each file is loaded and analysed on a bounded pool of threads, one file per thread at a time,
+ * with its output captured. The files' results are then printed in the order the files were
+ * given, as soon as each file and every file before it has finished, so the output does not depend
+ * on which thread finished first.
+ *
+ * <p>A file that cannot be loaded or analysed, such as one that is malformed or whose searches
+ * recurse too deep, prints an error in its own output and counts as failed, and the other files
+ * are analysed as usual.
+ */
+public class BatchAnalysis {
+
+  private final List<Command> commands;
+
+  private final BiConsumer<GraphCalculator, Command> query;
+
+  private final int threads;
+
+  /**
+   * The output and size of one analysed file.
+   *
+   * @param output What the file's commands printed.
+   * @param verticies The number of verticies in the file's graph.
+   * @param edges The number of edges in the file's graph.
+   * @param failed If the file could not be loaded or analysed.
+   */
+  private record FileResult(String output, long verticies, long edges, boolean failed) {}
+
+  /**
+   * Creates a batch analysis that uses a thread for each available processor.
+   *
+   * @param commands The commands to run on each file, in order.
+   * @param query Runs a command on a file's calculator, printing its result.
+   */
+  public BatchAnalysis(
+      final List<Command> commands, final BiConsumer<GraphCalculator, Command> query) {
+    this(commands, query, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a batch analysis.
+   *
+   * @param commands The commands to run on each file, in order.
+   * @param query Runs a command on a file's calculator, printing its result.
+   * @param threads The most files to analyse at once.
+   */
+  public BatchAnalysis(
+      final List<Command> commands,
+      final BiConsumer<GraphCalculator, Command> query,
+      final int threads) {
+    this.commands = commands;
+    this.query = query;
+    this.threads = threads;
+  }
+
+  /**
+   * Analyses each file, printing the results of each in turn, then the overall throughput.
+   *
+   * @param filenames The names of the test cases to analyse.
+   */
+  public void run(final List<String> filenames) {
+    final SessionOutput output = SessionOutput.install();
+    final int poolSize = Math.max(1, Math.min(threads, filenames.size()));
+    final ExecutorService pool =
+        Executors.newFixedThreadPool(
+            poolSize,
+            runnable -> {
+              final Thread thread = new Thread(runnable, "graph-calculator-analysis");
+              thread.setDaemon(true);
+              return thread;
+            });
+    final long start = System.nanoTime();
+
+    try {
+      final List<Future<FileResult>> results = new ArrayList<>();
+      for (final String filename : filenames) {
+        results.add(pool.submit(() -> analyse(output, filename)));
+      }
+
+      long verticies = 0;
+      long edges = 0;
+      int failed = 0;
+      for (int i = 0; i < filenames.size(); i++) {
+        final FileResult result = results.get(i).get();
+        MessageCli.ANALYSIS_FILE.printMessage(filenames.get(i));
+        System.out.print(result.output());
+        verticies += result.verticies();
+        edges += result.edges();
+        failed += result.failed() ? 1 : 0;
+      }
+
+      final long nanos = Math.max(1, System.nanoTime() - start);
+      MessageCli.ANALYSIS_SUMMARY.printMessage(
+          String.valueOf(filenames.size()),
+          String.valueOf(verticies),
+          String.valueOf(edges),
+          String.valueOf(nanos / 1_000_000),
+          String.valueOf(poolSize),
+          String.valueOf(filenames.size() * 1_000_000_000L / nanos),
+          String.valueOf(edges * 1_000_000_000L / nanos));
+      if (failed > 0) {
+        MessageCli.ANALYSIS_FAILURES.printMessage(String.valueOf(failed));
+      }
+    } catch (final ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Loads a file and runs each command on it, capturing what they print.
+   *
+   * @param output The standard output, which is sent to the file's buffer meanwhile.
+   * @param filename The name of the test case to analyse.
+   * @return The file's output and size.
+   */
+  private FileResult analyse(final SessionOutput output, final String filename) {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    output.begin(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+
+    try {
+      final GraphCalculator calculator = new GraphCalculator(filename);
+      for (final Command command : commands) {
+        query.accept(calculator, command);
+      }
+
+      final Graph<String> graph = calculator.getGraph();
+      return new FileResult(
+          buffer.toString(StandardCharsets.UTF_8),
+          graph.getVertexCount(),
+          graph.getEdgeCount(),
+          false);
+    } catch (final FileNotFoundException e) {
+      // The file was removed after it was listed.
+      MessageCli.FILE_NOT_FOUND.printMessage(filename);
+      return new FileResult(buffer.toString(StandardCharsets.UTF_8), 0, 0, true);
+    } catch (final RuntimeException | StackOverflowError e) {
+      // Such as a file the parser cannot read, or a search recursing deeper than the stack.
+      MessageCli.ANALYSIS_FILE_FAILED.printMessage(filename, String.valueOf(e));
+      return new FileResult(buffer.toString(StandardCharsets.UTF_8), 0, 0, true);
+    } finally {
+      output.end();
+    }
+  }
+}
@@ -2,22 +2,27 @@ package nz.ac.auckland.se281;
 
 /**
  * The commands that the user can enter into the CLI.
- *
- * <p>You should not modify this class.
  */
 public enum Command {
   OPEN_FILE(1, "Open the file <FILENAME>"),
+  OPEN_FILE_AS(2, "Open the file <FILENAME> holding its adjacency as <REPRESENTATION>"),
   INFO(0, "Print information about the current loaded file"),
+  WATCH(0, "Reload the current loaded file whenever it changes on disk"),
 
   LIST_VERTICIES_EDGES(0, "List the set of vertices and edges"),
   LIST_ROOT_VERTICIES(0, "List the set of root vertices"),
 
+  ADD_EDGE(2, "Add an edge from <SOURCE> to <DESTINATION> to the loaded graph"),
+  REMOVE_EDGE(2, "Remove the edge from <SOURCE> to <DESTINATION> from the loaded graph"),
+  APPLY_PATCH(1, "Apply the edge additions and removals in the patch file <FILENAME>"),
+
   CHECK_REFLEXIVITY(0, "Check reflexivity of the graph"),
   CHECK_SYMMETRY(0, "Check symmetry of the graph"),
   CHECK_TRANSITIVITY(0, "Check transitivity of the graph"),
   CHECK_ANTISYMMETRY(0, "Check anti-symmetry of the graph"),
   CHECK_EQUIVALENCE(0, "Check equivalence of the graph"),
   COMPUTE_EQUIVALENCE(1, "Compute equivalence class for a vertex in loaded file <VERTEX>"),
+  RELATION_PROFILE(0, "Check every property of the graph at once, with counts and counterexamples"),
 
   GRAPH_SEARCH_IBFS(
       0, "Perform a breadth-first search on the current loaded file, and display the BFS order"),
@@ -33,6 +38,19 @@ public enum Command {
       "Perform a recursive depth-first search on the current loaded file, and display the DFS"
           + " order"),
 
+  ANALYSE_ALL(
+      1,
+      "Run the comma-separated <COMMANDS> on every test case in parallel, and report the"
+          + " throughput"),
+  BUDGET(2, "Limit each command to <MILLISECONDS> and <VERTICIES> visited, 0 for no limit"),
+  STATS(
+      0,
+      "Print the latencies of each command and of loading files, and the work done by each"
+          + " search"),
+  RESET_STATS(0, "Reset the statistics printed by STATS"),
+  JOBS(0, "List the background jobs, which are started by ending a command with ' &'"),
+  WAIT(1, "Wait for the background job <ID> to finish and print its output"),
+  CANCEL(1, "Cancel the background job <ID>"),
   HELP(0, "Print usage"),
   EXIT(0, "Exit the application");
 
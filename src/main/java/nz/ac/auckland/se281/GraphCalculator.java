@@ -3,31 +3,72 @@ package nz.ac.auckland.se281;
 import com.paypal.digraph.parser.GraphEdge;
 import com.paypal.digraph.parser.GraphNode;
 import com.paypal.digraph.parser.GraphParser;
+import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import nz.ac.auckland.se281.datastructures.BudgetExceededException;
 import nz.ac.auckland.se281.datastructures.Edge;
+import nz.ac.auckland.se281.datastructures.Footprint;
 import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.RelationProfile;
+import nz.ac.auckland.se281.datastructures.RelationProperties;
+import nz.ac.auckland.se281.datastructures.Representation;
+import nz.ac.auckland.se281.datastructures.VersionedGraph;
 
 /**
  * The calculator that reports properties of graphs to the user.
- *
- * <p>You should not modify this class.
  */
 public class GraphCalculator {
   private static final Path TESTCASES = Path.of("testcases");
 
+  /** How many contents of an edited graph to remember the results of. */
+  private static final int RESULTS_KEPT = 64;
+
   private final Path file;
 
-  private final Collection<GraphNode> verticies;
+  private final Representation representation;
+
+  private final VersionedGraph<String> versions;
+
+  private volatile Analysis analysis;
 
-  private final Collection<GraphEdge> edges;
+  /** The results of the contents the graph has had, by content hash, least recently used first. */
+  private final Map<Long, ResultCache> resultsByContent =
+      Collections.synchronizedMap(
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, ResultCache> eldest) {
+              return size() > RESULTS_KEPT;
+            }
+          });
 
-  private final Graph<String> graph;
+  private volatile long readBytes;
+
+  private volatile WatchService watcher;
 
   /**
    * Creates a new graph calculator.
@@ -36,50 +77,627 @@ public class GraphCalculator {
    * @throws FileNotFoundException If the file does not exist.
    */
   public GraphCalculator(final String filename) throws FileNotFoundException {
+    this(filename, Representation.AUTO);
+  }
+
+  /**
+   * Creates a new graph calculator that holds the graph's adjacency in the given representation.
+   *
+   * @param filename The name of the test case to read.
+   * @param representation Where and how the graph's adjacency is stored.
+   * @throws FileNotFoundException If the file does not exist.
+   */
+  public GraphCalculator(final String filename, final Representation representation)
+      throws FileNotFoundException {
     file = TESTCASES.resolve(filename);
+    this.representation = representation;
+
+    final Contents contents = read(file);
+    readBytes = contents.footprint();
+    versions = new VersionedGraph<>(index(file, contents, representation));
+    refreshResults(true);
+    Metrics.recordLoad(this);
+  }
+
+  /**
+   * Starts watching the loaded file, so changes saved to it are applied before the next command.
+   *
+   * @throws IOException If the file's folder cannot be watched.
+   */
+  public synchronized void watch() throws IOException {
+    if (watcher != null) {
+      return;
+    }
+
+    // Editors often save by replacing the file, so creation counts as a change too.
+    watcher = file.getFileSystem().newWatchService();
+    file.toAbsolutePath()
+        .getParent()
+        .register(
+            watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+  }
+
+  /** Stops watching the loaded file. */
+  public synchronized void stopWatching() {
+    if (watcher == null) {
+      return;
+    }
+
+    try {
+      watcher.close();
+    } catch (IOException e) {
+      // The watcher is discarded either way.
+    }
+    watcher = null;
+  }
+
+  /**
+   * Reloads the file if it is being watched and has changed on disk since it was last read.
+   *
+   * <p>When the set of verticies is unchanged, only the edges that were added or removed are
+   * applied to the graph. Otherwise the graph is rebuilt, as verticies are numbered in order.
+   */
+  public void reloadIfChanged() {
+    if (watcher == null) {
+      return;
+    }
+
+    // Sessions sharing the graph check before every command, so only those watching it lock.
+    synchronized (this) {
+      reloadWatchedFile();
+    }
+  }
+
+  /** Drains the watcher's events, and reloads the file if any of them are for it. */
+  private void reloadWatchedFile() {
+    if (watcher == null) {
+      return;
+    }
+
+    boolean changed = false;
+    WatchKey key;
+
+    // Drain every pending event without blocking.
+    while ((key = watcher.poll()) != null) {
+      for (final WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW
+            || file.getFileName().equals(event.context())) {
+          changed = true;
+        }
+      }
+      key.reset();
+    }
+
+    if (changed) {
+      reload();
+    }
+  }
+
+  /** Reads the file again and applies the differences to the graph. */
+  private void reload() {
+    final String filename = getFilename();
+    final Contents contents;
+
+    try {
+      contents = read(file);
+    } catch (FileNotFoundException | RuntimeException e) {
+      // The file may be midway through being saved, so keep the last good graph.
+      MessageCli.FILE_RELOAD_FAILED.printMessage(filename);
+      return;
+    }
+
+    readBytes = contents.footprint();
+    if (!new HashSet<>(versions.graph().getVerticesInInsertionOrder())
+        .equals(contents.verticies())) {
+      versions.publish(index(file, contents, representation));
+      MessageCli.FILE_RELOADED_REBUILT.printMessage(filename);
+    } else {
+      final int[] changes =
+          versions.update(
+              graph -> {
+                int added = 0;
+                int removed = 0;
+
+                for (final Edge<String> edge : graph.getEdgesInInsertionOrder()) {
+                  if (!contents.edges().contains(edge)
+                      && graph.removeEdge(edge.getSource(), edge.getDestination())) {
+                    removed++;
+                  }
+                }
+                for (final Edge<String> edge : contents.edges()) {
+                  if (graph.addEdge(edge.getSource(), edge.getDestination())) {
+                    added++;
+                  }
+                }
+                return new int[] {added, removed};
+              });
+      MessageCli.FILE_RELOADED.printMessage(
+          filename, String.valueOf(changes[0]), String.valueOf(changes[1]));
+    }
+
+    refreshResults(true);
+  }
+
+  /**
+   * Adds an edge to the graph, adding either vertex if it is new.
+   *
+   * @param source The source vertex.
+   * @param destination The destination vertex.
+   */
+  public void addEdge(final String source, final String destination) {
+    if (!isVertexId(source) || !isVertexId(destination)) {
+      return;
+    }
 
-    final GraphParser parser = new GraphParser(new FileInputStream(file.toFile()));
+    final boolean added =
+        versions.update(
+            graph -> {
+              graph.addVertex(source);
+              graph.addVertex(destination);
+              return graph.addEdge(source, destination);
+            });
+
+    if (added) {
+      MessageCli.EDGE_ADDED.printMessage(source, destination);
+      refreshResults(false);
+    } else {
+      MessageCli.EDGE_ALREADY_EXISTS.printMessage(source, destination);
+    }
+  }
+
+  /**
+   * Removes an edge from the graph. Its verticies are kept.
+   *
+   * @param source The source vertex.
+   * @param destination The destination vertex.
+   */
+  public void removeEdge(final String source, final String destination) {
+    // Another session may remove the edge first, so only the edit itself decides if it was there.
+    final boolean removed =
+        versions.graph().hasEdge(source, destination)
+            && versions.update(graph -> graph.removeEdge(source, destination));
+
+    if (removed) {
+      MessageCli.EDGE_REMOVED.printMessage(source, destination);
+      refreshResults(false);
+    } else {
+      MessageCli.EDGE_NOT_FOUND.printMessage(source, destination);
+    }
+  }
+
+  /**
+   * Applies a patch file of edge edits to the graph as one batch.
+   *
+   * <p>Each line of the patch is either "+ SOURCE -&gt; DESTINATION" to add an edge or "-
+   * SOURCE -&gt; DESTINATION" to remove one, and blank lines and "//" comments are ignored. The
+   * patch is streamed twice: once to check every line and find new verticies, so the graph is
+   * renumbered only once, then again to apply the edits in order.
+   *
+   * @param filename The name of the patch file in the test cases folder.
+   */
+  public void applyPatch(final String filename) {
+    final Path patch = TESTCASES.resolve(filename);
+    final long start = System.nanoTime();
+    final Set<String> newVerticies = new LinkedHashSet<>();
+    int lineNumber = 0;
+
+    try (BufferedReader reader = Files.newBufferedReader(patch)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        final PatchLine edit = PatchLine.parse(line);
+        if (edit == null) {
+          continue;
+        }
+        if (!isVertexId(edit.source()) || !isVertexId(edit.destination())) {
+          return;
+        }
+        newVerticies.add(edit.source());
+        newVerticies.add(edit.destination());
+      }
+    } catch (final NoSuchFileException e) {
+      MessageCli.FILE_NOT_FOUND.printMessage(filename);
+      return;
+    } catch (final IOException e) {
+      MessageCli.PATCH_READ_FAILED.printMessage(filename);
+      return;
+    } catch (final IllegalArgumentException e) {
+      MessageCli.PATCH_INVALID_LINE.printMessage(String.valueOf(lineNumber), filename);
+      return;
+    }
+
+    final int[] changes;
+
+    try {
+      changes = versions.update(graph -> applyPatch(graph, patch, newVerticies));
+    } catch (final UncheckedIOException e) {
+      // Nothing is published, so the graph is left as it was before the patch.
+      MessageCli.PATCH_READ_FAILED.printMessage(filename);
+      return;
+    }
+    refreshResults(false);
+
+    final int added = changes[0];
+    final int removed = changes[1];
+    final double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+    MessageCli.PATCH_APPLIED.printMessage(
+        filename,
+        String.valueOf(added),
+        String.valueOf(removed),
+        String.format(Locale.ROOT, "%.1f", seconds * 1000),
+        String.format(Locale.ROOT, "%.0f", (added + removed) / seconds));
+  }
+
+  /**
+   * Applies the edits in a checked patch file to a graph in one batch.
+   *
+   * @param graph The graph to edit.
+   * @param patch The patch file.
+   * @param newVerticies The verticies in the patch, which are added first.
+   * @return The number of edges added and removed.
+   * @throws UncheckedIOException If the patch cannot be read.
+   */
+  private static int[] applyPatch(
+      final Graph<String> graph, final Path patch, final Set<String> newVerticies) {
+    int added = 0;
+    int removed = 0;
+    graph.beginBatch();
+
+    try (BufferedReader reader = Files.newBufferedReader(patch)) {
+      graph.addVertices(newVerticies);
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final PatchLine edit = PatchLine.parse(line);
+        if (edit == null) {
+          continue;
+        } else if (edit.addition()) {
+          added += graph.addEdge(edit.source(), edit.destination()) ? 1 : 0;
+        } else {
+          removed += graph.removeEdge(edit.source(), edit.destination()) ? 1 : 0;
+        }
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      graph.endBatch();
+    }
+    return new int[] {added, removed};
+  }
+
+  /**
+   * An edge edit read from a line of a patch file.
+   *
+   * @param addition If the edge is added rather than removed.
+   * @param source The source vertex.
+   * @param destination The destination vertex.
+   */
+  private record PatchLine(boolean addition, String source, String destination) {
+
+    /**
+     * Parses a line of a patch file.
+     *
+     * @param line The line.
+     * @return The edit, or null if the line is blank or a comment.
+     * @throws IllegalArgumentException If the line is not an edit.
+     */
+    static PatchLine parse(final String line) {
+      final String trimmed = line.trim();
+
+      if (trimmed.isEmpty() || trimmed.startsWith("//")) {
+        return null;
+      }
+
+      final char operation = trimmed.charAt(0);
+      final String[] verticies = trimmed.substring(1).replace(";", "").split("->");
+
+      if ((operation != '+' && operation != '-') || verticies.length != 2) {
+        throw new IllegalArgumentException(line);
+      }
+
+      return new PatchLine(operation == '+', verticies[0].trim(), verticies[1].trim());
+    }
+  }
+
+  /**
+   * Checks that a vertex id is a number, as verticies are ordered numerically.
+   *
+   * @param vertex The vertex id.
+   * @return If the id is valid.
+   */
+  private boolean isVertexId(final String vertex) {
+    try {
+      Integer.parseInt(vertex);
+      return true;
+    } catch (final NumberFormatException e) {
+      MessageCli.INVALID_VERTEX.printMessage(vertex);
+      return false;
+    }
+  }
+
+  /**
+   * Switches to the current version of the graph and the cached results of its contents.
+   *
+   * <p>Results are remembered in memory for each of the graph's recent contents, so an edit and
+   * its undo find the results computed before. Only the contents of a file that was read are
+   * looked up on disk, so editing never waits on the disk cache.
+   *
+   * @param read If the graph was just read from its file, rather than edited.
+   */
+  private void refreshResults(final boolean read) {
+    final VersionedGraph.Version<String> version = versions.current();
+    final Graph<String> graph = version.graph();
+    final ResultCache results =
+        resultsByContent.computeIfAbsent(
+            graph.getContentHash(),
+            hash ->
+                read
+                    ? new ResultCache(hash, graph.getVertexCount(), graph.getEdgeCount())
+                    : new ResultCache());
+
+    // Sessions sharing the calculator may publish and refresh in any order, so never go back to
+    // an earlier version than one already switched to.
+    synchronized (this) {
+      if (analysis == null || analysis.version() < version.number()) {
+        analysis = new Analysis(version.number(), graph, results);
+      }
+    }
+  }
 
-    this.verticies = parser.getNodes().values();
-    this.edges = parser.getEdges().values();
+  /**
+   * Reads the verticies and edges of a test case.
+   *
+   * <p>Ordered sets let the graph remember the file order, so nothing from the parser needs to
+   * outlive the read.
+   *
+   * @param file The test case to read.
+   * @return The verticies and edges in file order.
+   * @throws FileNotFoundException If the file does not exist.
+   */
+  private static Contents read(final Path file) throws FileNotFoundException {
+    final long start = System.nanoTime();
+    final GraphEvent.Parse event = new GraphEvent.Parse();
+    event.begin();
+
+    try {
+      final GraphParser parser = new GraphParser(new FileInputStream(file.toFile()));
+
+      final Set<String> verticies = new LinkedHashSet<>();
+
+      for (final GraphNode node : parser.getNodes().values()) {
+        verticies.add(node.getId());
+      }
+
+      final Set<Edge<String>> edges = new LinkedHashSet<>();
+
+      for (final GraphEdge edge : parser.getEdges().values()) {
+        edges.add(new Edge<>(edge.getNode1().getId(), edge.getNode2().getId()));
+      }
+
+      Statistics.recordPhase(Statistics.Phase.PARSE, start);
+      event.verticies = verticies.size();
+      event.edges = edges.size();
+      event.outcome = "parsed";
+      return new Contents(verticies, edges);
+    } catch (final FileNotFoundException | RuntimeException e) {
+      event.outcome = GraphEvent.failed(e);
+      throw e;
+    } finally {
+      if (event.shouldCommit()) {
+        event.file = TESTCASES.relativize(file).toString();
+        event.commit();
+      }
+    }
+  }
 
-    final Set<String> verticies = new HashSet<>();
+  /**
+   * Builds a graph of a test case's verticies and edges.
+   *
+   * @param file The test case the verticies and edges were read from.
+   * @param contents The verticies and edges.
+   * @param representation Where and how the graph's adjacency is stored.
+   * @return The graph.
+   */
+  private static Graph<String> index(
+      final Path file, final Contents contents, final Representation representation) {
+    final long start = System.nanoTime();
+    final GraphEvent.Index event = new GraphEvent.Index();
+    event.begin();
+
+    try {
+      final Graph<String> graph =
+          new Graph<>(contents.verticies(), contents.edges(), representation);
+      Statistics.recordPhase(Statistics.Phase.INDEX, start);
+      event.outcome = "built";
+      return graph;
+    } catch (final RuntimeException e) {
+      event.outcome = GraphEvent.failed(e);
+      throw e;
+    } finally {
+      if (event.shouldCommit()) {
+        event.file = TESTCASES.relativize(file).toString();
+        event.verticies = contents.verticies().size();
+        event.edges = contents.edges().size();
+        event.representation = representation.name();
+        event.commit();
+      }
+    }
+  }
 
-    for (final GraphNode node : this.verticies) {
-      verticies.add(node.getId());
+  /**
+   * The verticies and edges read from a test case, in file order.
+   *
+   * @param verticies The verticies.
+   * @param edges The edges.
+   */
+  private record Contents(Set<String> verticies, Set<Edge<String>> edges) {
+
+    /**
+     * Estimates the heap the sets hold, apart from the verticies that the graph keeps.
+     *
+     * @return The estimated bytes.
+     */
+    long footprint() {
+      return Footprint.linkedHashSet(verticies.size())
+          + Footprint.linkedHashSet(edges.size())
+          + edges.size() * Footprint.edge();
     }
+  }
 
-    final Set<Edge<String>> edges = new HashSet<>();
+  /**
+   * A version of the graph and the cached results of its contents, which commands read together
+   * so a result is never cached against a different version than it was computed from.
+   *
+   * @param version The number of the graph's version.
+   * @param graph The frozen graph.
+   * @param results The cached results of the graph's contents.
+   */
+  private record Analysis(long version, Graph<String> graph, ResultCache results) {}
 
-    for (final GraphEdge edge : this.edges) {
-      edges.add(new Edge<>(edge.getNode1().getId(), edge.getNode2().getId()));
+  /**
+   * Returns the filename of the test case that is loaded.
+   *
+   * @return The filename, relative to the test cases folder.
+   */
+  public String getFilename() {
+    return TESTCASES.relativize(file).toString();
+  }
+
+  /**
+   * Lists the test cases in the test cases folder, which are its ".txt" files.
+   *
+   * @return The filenames of the test cases, in alphabetical order.
+   * @throws IOException If the folder cannot be read.
+   */
+  public static List<String> listTestcases() throws IOException {
+    try (Stream<Path> files = Files.list(TESTCASES)) {
+      return files
+          .filter(path -> Files.isRegularFile(path) && path.toString().endsWith(".txt"))
+          .map(path -> TESTCASES.relativize(path).toString())
+          .sorted()
+          .collect(Collectors.toList());
     }
+  }
 
-    graph = new Graph<>(verticies, edges);
+  /**
+   * Returns the current version of the graph, which is frozen.
+   *
+   * @return The graph.
+   */
+  public Graph<String> getGraph() {
+    return analysis.graph();
   }
 
-  /** Prints the filename of the test case that is loaded. */
+  /**
+   * Prints the filename of the test case that is loaded, the representation its adjacency is held
+   * in, and an estimate of the heap its graph retains, by structure.
+   */
   public void printInfo() {
-    MessageCli.INFO.printMessage(TESTCASES.relativize(file).toString());
+    MessageCli.INFO.printMessage(getFilename());
+    MessageCli.REPRESENTATION.printMessage(
+        analysis.graph().getRepresentation().name().toLowerCase().replace('_', '-'));
+
+    final Footprint footprint = analysis.graph().getFootprint();
+    MessageCli.FOOTPRINT.printMessage(
+        HeapUsage.format(footprint.getTotalBytes()),
+        String.format(Locale.ROOT, "%.1f B", footprint.getBytesPerEdge()));
+    for (final Map.Entry<String, Long> structure : footprint.getStructures().entrySet()) {
+      MessageCli.FOOTPRINT_STRUCTURE.printMessage(
+          structure.getKey(), HeapUsage.format(structure.getValue()));
+    }
+    if (footprint.getOffHeapBytes() > 0) {
+      MessageCli.FOOTPRINT_OFF_HEAP.printMessage(HeapUsage.format(footprint.getOffHeapBytes()));
+    }
+    MessageCli.FOOTPRINT_READ.printMessage(HeapUsage.format(readBytes));
+  }
+
+  /**
+   * Computes several property checks together in one pass over the edges, caching their results
+   * so the commands that print them do not walk the edges again. Checks that are already cached
+   * are left as they are.
+   *
+   * @param checks The property check commands.
+   */
+  public void computeProperties(final Collection<Command> checks) {
+    final Analysis current = analysis;
+    final List<Command> missing = new ArrayList<>();
+    for (final Command check : checks) {
+      if (!current.results().contains(check.name())) {
+        missing.add(check);
+      }
+    }
+    if (missing.isEmpty()) {
+      return;
+    }
+
+    final GraphEvent.PropertyCheck event = new GraphEvent.PropertyCheck();
+    event.command = missing.stream().map(Command::name).collect(Collectors.joining(","));
+    event.begin();
+
+    final RelationProperties properties;
+    try {
+      properties = current.graph().getRelationProperties();
+    } catch (final BudgetExceededException e) {
+      // Each check then runs, and reports running out of budget, on its own.
+      event.outcome = GraphEvent.INCONCLUSIVE;
+      event.commit(getFilename(), current.graph());
+      return;
+    }
+    event.outcome = describeOutcome(properties);
+    event.commit(getFilename(), current.graph());
+
+    final Map<String, String> computed = new LinkedHashMap<>();
+    for (final Command check : missing) {
+      final MessageCli message;
+      final boolean holds;
+
+      switch (check) {
+        case CHECK_REFLEXIVITY:
+          message = MessageCli.GRAPH_REFLEXIVE;
+          holds = properties.isReflexive();
+          break;
+        case CHECK_SYMMETRY:
+          message = MessageCli.GRAPH_SYMMETRIC;
+          holds = properties.isSymmetric();
+          break;
+        case CHECK_TRANSITIVITY:
+          message = MessageCli.GRAPH_TRANSITIVE;
+          holds = properties.isTransitive();
+          break;
+        case CHECK_ANTISYMMETRY:
+          message = MessageCli.GRAPH_ANTI_SYMMETRIC;
+          holds = properties.isAntiSymmetric();
+          break;
+        case CHECK_EQUIVALENCE:
+          message = MessageCli.GRAPH_EQUIVALENCE;
+          holds = properties.isEquivalence();
+          break;
+        default:
+          throw new IllegalArgumentException(check + " is not a property check");
+      }
+      computed.put(check.name(), message.getMessage(prefixNot(holds)));
+    }
+    current.results().putAll(computed);
   }
 
   /** Prints the set of verticies and edges in the graph. */
   public void printVerticiesEdges() {
+    final Graph<String> graph = analysis.graph();
     final StringBuilder sb = new StringBuilder("Verticies:").append(System.lineSeparator());
 
     // Vertically print each vertex.
-    for (final GraphNode node : verticies) {
-      sb.append("\t").append(node.getId()).append(System.lineSeparator());
+    for (final String vertex : graph.getVerticesInInsertionOrder()) {
+      sb.append("\t").append(vertex).append(System.lineSeparator());
     }
 
     sb.append(System.lineSeparator()).append("Edges:").append(System.lineSeparator());
 
     // Vertically print each edge between verticies.
-    for (final GraphEdge edge : edges) {
+    for (final Edge<String> edge : graph.getEdgesInInsertionOrder()) {
       sb.append("\t")
-          .append(edge.getNode1().getId())
+          .append(edge.getSource())
           .append(" -> ")
-          .append(edge.getNode2().getId())
+          .append(edge.getDestination())
           .append(System.lineSeparator());
     }
 
@@ -88,32 +706,33 @@ public class GraphCalculator {
 
   /** Prints the set of verticies in the graph that are root verticies. */
   public void printRoots() {
-    System.out.println(graph.getRoots());
+    printResult(Command.LIST_ROOT_VERTICIES.name(), graph -> graph.getRoots().toString());
   }
 
   /** Prints if the set of verticies in the graph exhibit the reflexivity property. */
   public void printReflexitivity() {
-    MessageCli.GRAPH_REFLEXIVE.printMessage(prefixNot(graph.isReflexive()));
+    printProperty(Command.CHECK_REFLEXIVITY, MessageCli.GRAPH_REFLEXIVE, Graph::isReflexive);
   }
 
   /** Prints if the set of edges in the graph exhibit the symmetric property. */
   public void printSymmetry() {
-    MessageCli.GRAPH_SYMMETRIC.printMessage(prefixNot(graph.isSymmetric()));
+    printProperty(Command.CHECK_SYMMETRY, MessageCli.GRAPH_SYMMETRIC, Graph::isSymmetric);
   }
 
   /** Prints if the set of edges in the graph exhibit transitivity. */
   public void printTransitivity() {
-    MessageCli.GRAPH_TRANSITIVE.printMessage(prefixNot(graph.isTransitive()));
+    printProperty(Command.CHECK_TRANSITIVITY, MessageCli.GRAPH_TRANSITIVE, Graph::isTransitive);
   }
 
   /** Prints if the set of edges in the graph exhibit anti-symmetry. */
   public void printAntiSymmetry() {
-    MessageCli.GRAPH_ANTI_SYMMETRIC.printMessage(prefixNot(graph.isAntiSymmetric()));
+    printProperty(
+        Command.CHECK_ANTISYMMETRY, MessageCli.GRAPH_ANTI_SYMMETRIC, Graph::isAntiSymmetric);
   }
 
   /** Prints if the entire graph is considered an equivalence relation. */
   public void printEquivalence() {
-    MessageCli.GRAPH_EQUIVALENCE.printMessage(prefixNot(graph.isEquivalence()));
+    printProperty(Command.CHECK_EQUIVALENCE, MessageCli.GRAPH_EQUIVALENCE, Graph::isEquivalence);
   }
 
   /**
@@ -122,29 +741,230 @@ public class GraphCalculator {
    * @param vertex The vertex to compute the equivalence class of.
    */
   public void printEquivalenceClass(final String vertex) {
-    final Object[] equivalenceClass = graph.getEquivalenceClass(vertex).toArray();
-    Arrays.sort(equivalenceClass);
-    System.out.println(Arrays.toString(equivalenceClass));
+    printResult(
+        Command.COMPUTE_EQUIVALENCE.name() + " " + vertex,
+        graph -> {
+          final Object[] equivalenceClass = graph.getEquivalenceClass(vertex).toArray();
+          Arrays.sort(equivalenceClass);
+          return Arrays.toString(equivalenceClass);
+        });
+  }
+
+  /**
+   * Prints every property of the graph as a relation, found in one pass over its edges, with its
+   * counts and the first counterexample to each property it does not have.
+   */
+  public void printRelationProfile() {
+    printResult(
+        Command.RELATION_PROFILE.name(),
+        graph -> {
+          final GraphEvent.PropertyCheck event = new GraphEvent.PropertyCheck();
+          event.command = Command.RELATION_PROFILE.name();
+          event.begin();
+
+          try {
+            final RelationProfile<String> profile = graph.getRelationProfile();
+            event.outcome = describeOutcome(profile);
+            return describeProfile(profile);
+          } catch (final RuntimeException e) {
+            event.outcome = GraphEvent.failed(e);
+            throw e;
+          } finally {
+            event.commit(getFilename(), graph);
+          }
+        });
   }
 
   /** Prints the search order of an iterative breadth first search. */
   public void printIterativeBreadthFirstSearch() {
-    System.out.println(Arrays.toString(graph.iterativeBreadthFirstSearch().toArray()));
+    printSearch(Command.GRAPH_SEARCH_IBFS, Graph::iterativeBreadthFirstSearch);
   }
 
   /** Prints the search order of an iterative depth first search. */
   public void printDepthFirstSearch() {
-    System.out.println(Arrays.toString(graph.iterativeDepthFirstSearch().toArray()));
+    printSearch(Command.GRAPH_SEARCH_IDFS, Graph::iterativeDepthFirstSearch);
   }
 
   /** Prints the search order of a recursive breadth first search. */
   public void printRecursiveBreadthFirstSearch() {
-    System.out.println(Arrays.toString(graph.recursiveBreadthFirstSearch().toArray()));
+    printSearch(Command.GRAPH_SEARCH_RBFS, Graph::recursiveBreadthFirstSearch);
   }
 
   /** Prints the search order of a recursive depth first search. */
   public void printRecursiveDepthFirstSearch() {
-    System.out.println(Arrays.toString(graph.recursiveDepthFirstSearch().toArray()));
+    printSearch(Command.GRAPH_SEARCH_RDFS, Graph::recursiveDepthFirstSearch);
+  }
+
+  /**
+   * Prints whether the graph has a property, using the cached result if there is one.
+   *
+   * @param command The command that checks the property.
+   * @param message The message reporting the property.
+   * @param check Determines if the graph has the property.
+   */
+  private void printProperty(
+      final Command command, final MessageCli message, final Predicate<Graph<String>> check) {
+    printResult(
+        command.name(),
+        graph -> {
+          final GraphEvent.PropertyCheck event = new GraphEvent.PropertyCheck();
+          event.command = command.name();
+          event.begin();
+
+          try {
+            final boolean holds = check.test(graph);
+            event.outcome = holds ? "holds" : "does not hold";
+            return message.getMessage(prefixNot(holds));
+          } catch (final RuntimeException e) {
+            event.outcome = GraphEvent.failed(e);
+            throw e;
+          } finally {
+            event.commit(getFilename(), graph);
+          }
+        });
+  }
+
+  /**
+   * Prints the order of a search, using the cached result if there is one.
+   *
+   * @param command The command that performs the search.
+   * @param search Performs the search.
+   */
+  private void printSearch(
+      final Command command, final Function<Graph<String>, List<String>> search) {
+    printResult(
+        command.name(),
+        graph -> {
+          final GraphEvent.Traversal event = new GraphEvent.Traversal();
+          event.command = command.name();
+          event.begin();
+
+          try {
+            final List<String> order = search.apply(graph);
+            event.visited = order.size();
+            event.outcome = "complete";
+            return Arrays.toString(order.toArray());
+          } catch (final BudgetExceededException e) {
+            event.visited = e.getPartialResult() == null ? 0 : e.getPartialResult().size();
+            event.outcome = GraphEvent.INCONCLUSIVE;
+            throw e;
+          } catch (final RuntimeException e) {
+            event.outcome = GraphEvent.failed(e);
+            throw e;
+          } finally {
+            event.commit(getFilename(), graph);
+          }
+        });
+  }
+
+  /**
+   * Describes which properties a graph has as a relation, as the outcome of checking them.
+   *
+   * @param properties The properties of the graph.
+   * @return The properties, each prefixed with "NOT " if the graph does not have it.
+   */
+  private String describeOutcome(final RelationProperties properties) {
+    return String.join(
+        ", ",
+        prefixNot(properties.isReflexive()) + "reflexive",
+        prefixNot(properties.isSymmetric()) + "symmetric",
+        prefixNot(properties.isAntiSymmetric()) + "antisymmetric",
+        prefixNot(properties.isTransitive()) + "transitive",
+        prefixNot(properties.isEquivalence()) + "an equivalence relation");
+  }
+
+  /**
+   * Prints a result computed from the current version of the graph, using the cached result if
+   * there is one.
+   *
+   * <p>If the command's budget runs out, a search prints the verticies it had found so far and
+   * anything else reports that it is inconclusive. Neither is cached.
+   *
+   * @param key The command, and any arguments that affect its result.
+   * @param compute Computes the result from the graph.
+   */
+  private void printResult(final String key, final Function<Graph<String>, String> compute) {
+    final Analysis current = analysis;
+
+    try {
+      System.out.println(current.results().get(key, () -> compute.apply(current.graph())));
+    } catch (final BudgetExceededException e) {
+      if (e.getPartialResult() == null) {
+        MessageCli.BUDGET_INCONCLUSIVE.printMessage(e.getMessage());
+      } else {
+        System.out.println(Arrays.toString(e.getPartialResult().toArray()));
+        MessageCli.BUDGET_PARTIAL.printMessage(
+            String.valueOf(e.getPartialResult().size()), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Describes a relation profile, one line for the counts and then one for each property.
+   *
+   * @param profile The profile of the graph.
+   * @return The description.
+   */
+  private String describeProfile(final RelationProfile<String> profile) {
+    String reflexive = null;
+    String symmetric = null;
+    String antiSymmetric = null;
+    String transitive = null;
+
+    if (!profile.isReflexive()) {
+      final String vertex = profile.getMissingSelfLoop();
+      reflexive = MessageCli.NO_SELF_LOOP.getMessage(vertex, vertex);
+    }
+    if (!profile.isSymmetric()) {
+      final Edge<String> edge = profile.getMissingReverse();
+      symmetric =
+          MessageCli.NO_REVERSE.getMessage(
+              edge.getSource(), edge.getDestination(), edge.getDestination(), edge.getSource());
+    }
+    if (!profile.isAntiSymmetric()) {
+      final Edge<String> edge = profile.getReversedPair();
+      antiSymmetric =
+          MessageCli.BOTH_WAYS.getMessage(
+              edge.getSource(), edge.getDestination(), edge.getDestination(), edge.getSource());
+    }
+    if (!profile.isTransitive()) {
+      final List<String> path = profile.getMissingShortcut();
+      transitive =
+          MessageCli.NO_SHORTCUT.getMessage(
+              path.get(0), path.get(1), path.get(1), path.get(2), path.get(0), path.get(2));
+    }
+    // An equivalence relation fails on the first of its properties that does.
+    final String equivalence =
+        reflexive != null ? reflexive : symmetric != null ? symmetric : transitive;
+
+    return String.join(
+        System.lineSeparator(),
+        MessageCli.RELATION_COUNTS.getMessage(
+            String.valueOf(profile.getVertexCount()),
+            String.valueOf(profile.getEdgeCount()),
+            String.valueOf(profile.getSelfLoops()),
+            String.valueOf(profile.getUnmatchedEdges()),
+            String.valueOf(profile.getReversedPairs())),
+        describeProperty(MessageCli.GRAPH_REFLEXIVE, reflexive),
+        describeProperty(MessageCli.GRAPH_SYMMETRIC, symmetric),
+        describeProperty(MessageCli.GRAPH_ANTI_SYMMETRIC, antiSymmetric),
+        describeProperty(MessageCli.GRAPH_TRANSITIVE, transitive),
+        describeProperty(MessageCli.GRAPH_EQUIVALENCE, equivalence));
+  }
+
+  /**
+   * Describes whether the graph has a property, and why not if it does not.
+   *
+   * @param message The message reporting the property.
+   * @param counterexample Why the graph does not have the property, or null if it does.
+   * @return The description.
+   */
+  private String describeProperty(final MessageCli message, final String counterexample) {
+    if (counterexample == null) {
+      return message.getMessage(prefixNot(true));
+    }
+    return MessageCli.PROPERTY_COUNTEREXAMPLE.getMessage(
+        message.getMessage(prefixNot(false)), counterexample);
   }
 
   /**
@@ -0,0 +1,97 @@
+package nz.ac.auckland.se281;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import nz.ac.auckland.se281.datastructures.BudgetExceededException;
+import nz.ac.auckland.se281.datastructures.Graph;
+
+/**
+ * Flight Recorder events for the phases of loading and analysing a graph, so a recording shows
+ * where each command spends its time and allocations.
+ *
+ * <p>Each phase begins its event before the work and commits it after, whether or not the work
+ * succeeded. While nothing is recording these events, committing them does nothing, and the JIT
+ * removes the events altogether.
+ */
+@Category("Graph Calculator")
+@StackTrace(false)
+abstract class GraphEvent extends Event {
+
+  /** The outcome of work that ran out of its budget before it could finish. */
+  static final String INCONCLUSIVE = "inconclusive";
+
+  @Label("File")
+  @Description("The test case the graph was read from")
+  String file;
+
+  @Label("Verticies")
+  int verticies;
+
+  @Label("Edges")
+  long edges;
+
+  @Label("Outcome")
+  String outcome;
+
+  /**
+   * Describes the outcome of work that threw an exception.
+   *
+   * @param e The exception.
+   * @return The outcome, which is inconclusive if the work ran out of its budget.
+   */
+  static String failed(final Exception e) {
+    return e instanceof BudgetExceededException ? INCONCLUSIVE : "failed: " + e;
+  }
+
+  /**
+   * Commits the event if it is being recorded, along with the graph it was about.
+   *
+   * @param file The test case the graph was read from.
+   * @param graph The graph.
+   */
+  void commit(final String file, final Graph<?> graph) {
+    if (shouldCommit()) {
+      this.file = file;
+      verticies = graph.getVertexCount();
+      edges = graph.getEdgeCount();
+      commit();
+    }
+  }
+
+  /** Parsing a DOT file into its verticies and edges. */
+  @Name("nz.ac.auckland.se281.Parse")
+  @Label("Parse DOT File")
+  static class Parse extends GraphEvent {}
+
+  /** Building a graph's adjacency from its verticies and edges. */
+  @Name("nz.ac.auckland.se281.Index")
+  @Label("Build Adjacency")
+  static class Index extends GraphEvent {
+    @Label("Representation")
+    String representation;
+  }
+
+  /** Checking one or more properties of a graph as a relation. */
+  @Name("nz.ac.auckland.se281.PropertyCheck")
+  @Label("Property Check")
+  static class PropertyCheck extends GraphEvent {
+    @Label("Command")
+    @Description("The commands whose properties were checked, when checked together")
+    String command;
+  }
+
+  /** Searching a graph from its roots. */
+  @Name("nz.ac.auckland.se281.Traversal")
+  @Label("Traversal")
+  static class Traversal extends GraphEvent {
+    @Label("Command")
+    String command;
+
+    @Label("Verticies Visited")
+    int visited;
+  }
+}
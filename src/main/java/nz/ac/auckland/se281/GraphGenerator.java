@@ -0,0 +1,412 @@
+package nz.ac.auckland.se281;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generates large synthetic graphs for scaling benchmarks and tests.
+ *
+ * <p>Each family takes the number of verticies, one parameter that shapes it, and a seed, and the
+ * same arguments always generate the same graph. Edges are produced one at a time, so a graph of
+ * tens of millions of edges is written out without ever being held in memory. Verticies are
+ * numbered from 0.
+ *
+ * <p>Run with {@code ./mvnw compile exec:java@generate -Dexec.args="FAMILY VERTICIES PARAMETER
+ * SEED FILE [FORMAT]"}.
+ */
+public class GraphGenerator {
+
+  /** The families of graphs that can be generated. */
+  public enum Family {
+    /**
+     * A random DAG, whose edges go from lower to higher verticies. The parameter is the mean
+     * out-degree.
+     */
+    DAG,
+    /**
+     * A random graph whose in-degrees follow a power law with exponent 2.5, as in a Chung-Lu model.
+     * The parameter is the mean out-degree.
+     */
+    POWER_LAW,
+    /** An equivalence relation whose classes all have the size given by the parameter. */
+    EQUIVALENCE_FIXED,
+    /** An equivalence relation whose class sizes are uniform, with the parameter as the mean. */
+    EQUIVALENCE_UNIFORM,
+    /**
+     * An equivalence relation whose class sizes follow a power law with exponent 2.5, with the
+     * parameter as the smallest size.
+     */
+    EQUIVALENCE_POWER_LAW,
+    /**
+     * The transitive closure of a random forest, where each vertex is a child of a random earlier
+     * vertex. The parameter is the depth of the deepest tree, so there are at most that many edges
+     * into each vertex.
+     */
+    CLOSURE
+  }
+
+  /** The formats that a graph can be written in. */
+  public enum Format {
+    /** A DOT digraph, as the test cases are written, which declares every vertex. */
+    DOT,
+    /** An edge list of additions, as patches are written, which omits verticies with no edges. */
+    PATCH
+  }
+
+  /** Receives each generated edge, in the order they are generated. */
+  @FunctionalInterface
+  public interface EdgeConsumer {
+
+    /**
+     * Receives an edge.
+     *
+     * @param source The source vertex.
+     * @param destination The destination vertex.
+     * @throws IOException If the edge cannot be written.
+     */
+    void accept(int source, int destination) throws IOException;
+  }
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** The power law of in-degrees and class sizes. */
+  private static final double EXPONENT = 2.5;
+
+  private final Family family;
+
+  private final int verticies;
+
+  private final double parameter;
+
+  private final long seed;
+
+  /**
+   * Creates a generator of one graph.
+   *
+   * @param family The family of the graph.
+   * @param verticies The number of verticies.
+   * @param parameter The parameter that shapes the family, which must be positive.
+   * @param seed The seed of the random choices.
+   */
+  public GraphGenerator(
+      final Family family, final int verticies, final double parameter, final long seed) {
+    if (verticies < 0 || !(parameter > 0)) {
+      throw new IllegalArgumentException(
+          "Expected at least 0 verticies and a positive parameter, not "
+              + verticies
+              + " and "
+              + parameter);
+    }
+    this.family = family;
+    this.verticies = verticies;
+    this.parameter = parameter;
+    this.seed = seed;
+  }
+
+  /**
+   * Generates the graph and writes it to a file.
+   *
+   * @param file The file to write.
+   * @param format The format to write the graph in.
+   * @return The number of edges written.
+   * @throws IOException If the file cannot be written.
+   */
+  public long write(final Path file, final Format format) throws IOException {
+    try (Writer writer =
+        new BufferedWriter(
+            new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8),
+            BUFFER_SIZE)) {
+      return write(writer, format);
+    }
+  }
+
+  /**
+   * Generates the graph and writes it out.
+   *
+   * @param writer Where to write the graph, which should be buffered.
+   * @param format The format to write the graph in.
+   * @return The number of edges written.
+   * @throws IOException If the graph cannot be written.
+   */
+  public long write(final Writer writer, final Format format) throws IOException {
+    final String prefix = format == Format.DOT ? " " : "+ ";
+    final String suffix = format == Format.DOT ? ";\n" : "\n";
+
+    if (format == Format.DOT) {
+      writer.write("digraph generated {\n");
+      for (int vertex = 0; vertex < verticies; vertex++) {
+        writer.write(" ");
+        writer.write(Integer.toString(vertex));
+        writer.write(";\n");
+      }
+    }
+
+    final long edges =
+        generate(
+            (source, destination) -> {
+              writer.write(prefix);
+              writer.write(Integer.toString(source));
+              writer.write(" -> ");
+              writer.write(Integer.toString(destination));
+              writer.write(suffix);
+            });
+
+    if (format == Format.DOT) {
+      writer.write("}\n");
+    }
+    return edges;
+  }
+
+  /**
+   * Generates the graph, passing each edge to a consumer. No edge is generated twice.
+   *
+   * @param consumer Receives each edge.
+   * @return The number of edges generated.
+   * @throws IOException If the consumer fails.
+   */
+  public long generate(final EdgeConsumer consumer) throws IOException {
+    final SplittableRandom random = new SplittableRandom(seed);
+
+    switch (family) {
+      case DAG:
+      case POWER_LAW:
+        return generateRandom(random, consumer);
+      case EQUIVALENCE_FIXED:
+      case EQUIVALENCE_UNIFORM:
+      case EQUIVALENCE_POWER_LAW:
+        return generateEquivalence(random, consumer);
+      case CLOSURE:
+        return generateClosure(random, consumer);
+      default:
+        throw new IllegalArgumentException("Unknown family " + family);
+    }
+  }
+
+  /**
+   * Generates a DAG or power-law graph, drawing each vertex's out-degree around the mean and then
+   * its distinct destinations.
+   *
+   * @param random The source of random choices.
+   * @param consumer Receives each edge.
+   * @return The number of edges generated.
+   * @throws IOException If the consumer fails.
+   */
+  private long generateRandom(final SplittableRandom random, final EdgeConsumer consumer)
+      throws IOException {
+    final boolean acyclic = family == Family.DAG;
+    int[] destinations = new int[0];
+    long edges = 0;
+
+    for (int source = 0; source < verticies; source++) {
+      // Only later verticies can be destinations of a DAG, and no vertex is its own.
+      final int candidates = acyclic ? verticies - source - 1 : verticies - 1;
+      final int degree = (int) Math.min(candidates, drawCount(random, parameter));
+      if (destinations.length < degree) {
+        destinations = new int[Math.max(degree, destinations.length * 2)];
+      }
+
+      int found = 0;
+      while (found < degree) {
+        final int destination;
+        if (acyclic) {
+          destination = source + 1 + random.nextInt(candidates);
+        } else {
+          // Low verticies are much more likely, so in-degrees follow a power law.
+          destination = (int) (verticies * Math.pow(random.nextDouble(), 1 / (EXPONENT - 2) + 1));
+        }
+        if (destination != source && !contains(destinations, found, destination)) {
+          destinations[found++] = destination;
+        }
+      }
+
+      Arrays.sort(destinations, 0, found);
+      for (int i = 0; i < found; i++) {
+        consumer.accept(source, destinations[i]);
+      }
+      edges += found;
+    }
+    return edges;
+  }
+
+  /**
+   * Generates an equivalence relation, assigning randomly chosen verticies to each class in turn.
+   *
+   * @param random The source of random choices.
+   * @param consumer Receives each edge.
+   * @return The number of edges generated.
+   * @throws IOException If the consumer fails.
+   */
+  private long generateEquivalence(final SplittableRandom random, final EdgeConsumer consumer)
+      throws IOException {
+    final int[] order = shuffledVerticies(random);
+    long edges = 0;
+
+    for (int start = 0; start < verticies; ) {
+      final int size = (int) Math.min(verticies - start, drawClassSize(random));
+      final int[] members = Arrays.copyOfRange(order, start, start + size);
+      Arrays.sort(members);
+
+      for (final int source : members) {
+        for (final int destination : members) {
+          consumer.accept(source, destination);
+        }
+      }
+      edges += (long) size * size;
+      start += size;
+    }
+    return edges;
+  }
+
+  /**
+   * Generates the transitive closure of a random forest, with an edge from every vertex to each
+   * of its descendants. A vertex whose chosen parent is already at the deepest level starts a new
+   * tree instead.
+   *
+   * @param random The source of random choices.
+   * @param consumer Receives each edge.
+   * @return The number of edges generated.
+   * @throws IOException If the consumer fails.
+   */
+  private long generateClosure(final SplittableRandom random, final EdgeConsumer consumer)
+      throws IOException {
+    final int maxDepth = (int) Math.max(1, Math.min(Integer.MAX_VALUE, parameter));
+    final int[] parents = new int[verticies];
+    final int[] depths = new int[verticies];
+    final int[] ancestors = new int[Math.min(maxDepth, Math.max(verticies, 1))];
+    long edges = 0;
+
+    for (int vertex = 0; vertex < verticies; vertex++) {
+      parents[vertex] = -1;
+      if (vertex > 0) {
+        final int parent = random.nextInt(vertex);
+        if (depths[parent] < maxDepth) {
+          parents[vertex] = parent;
+          depths[vertex] = depths[parent] + 1;
+        }
+      }
+
+      int count = 0;
+      for (int ancestor = parents[vertex]; ancestor >= 0; ancestor = parents[ancestor]) {
+        ancestors[count++] = ancestor;
+      }
+      Arrays.sort(ancestors, 0, count);
+      for (int i = 0; i < count; i++) {
+        consumer.accept(ancestors[i], vertex);
+      }
+      edges += count;
+    }
+    return edges;
+  }
+
+  /**
+   * Draws a whole number with the given mean, as the mean's whole part plus one with a chance of
+   * its fractional part.
+   *
+   * @param random The source of random choices.
+   * @param mean The mean.
+   * @return The number.
+   */
+  private static long drawCount(final SplittableRandom random, final double mean) {
+    final long whole = (long) mean;
+    return whole + (random.nextDouble() < mean - whole ? 1 : 0);
+  }
+
+  /**
+   * Draws the size of the next equivalence class.
+   *
+   * @param random The source of random choices.
+   * @return The size, at least 1.
+   */
+  private long drawClassSize(final SplittableRandom random) {
+    if (family == Family.EQUIVALENCE_UNIFORM) {
+      // Uniform from 1 to one less than twice the mean, so the mean is the parameter.
+      final long largest = Math.max(1, Math.round(2 * parameter) - 1);
+      return 1 + random.nextLong(largest);
+    } else if (family == Family.EQUIVALENCE_POWER_LAW) {
+      // A Pareto draw, by inverse transform of a uniform draw in (0, 1].
+      final double uniform = 1 - random.nextDouble();
+      return Math.max(1, (long) (parameter / Math.pow(uniform, 1 / (EXPONENT - 1))));
+    }
+    return Math.max(1, Math.round(parameter));
+  }
+
+  /**
+   * Shuffles the verticies, so classes are not runs of consecutive numbers.
+   *
+   * @param random The source of random choices.
+   * @return The verticies in a random order.
+   */
+  private int[] shuffledVerticies(final SplittableRandom random) {
+    final int[] order = new int[verticies];
+    for (int i = 0; i < verticies; i++) {
+      final int j = random.nextInt(i + 1);
+      order[i] = order[j];
+      order[j] = i;
+    }
+    return order;
+  }
+
+  /**
+   * Determines if a value is among the first elements of an array.
+   *
+   * @param values The array.
+   * @param length How many elements to look at.
+   * @param value The value to find.
+   * @return If the value was found.
+   */
+  private static boolean contains(final int[] values, final int length, final int value) {
+    for (int i = 0; i < length; i++) {
+      if (values[i] == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Generates a graph into a file.
+   *
+   * @param args The family, number of verticies, parameter, seed, file and optionally format.
+   * @throws IOException If the file cannot be written.
+   */
+  public static void main(final String[] args) throws IOException {
+    final GraphGenerator generator;
+    final Path file;
+    final Format format;
+
+    try {
+      if (args.length < 5 || args.length > 6) {
+        throw new IllegalArgumentException("Expected 5 or 6 arguments");
+      }
+      generator =
+          new GraphGenerator(
+              Family.valueOf(args[0].toUpperCase(Locale.ROOT).replaceAll("-", "_")),
+              Integer.parseInt(args[1]),
+              Double.parseDouble(args[2]),
+              Long.parseLong(args[3]));
+      file = Path.of(args[4]);
+      format =
+          args.length == 6 ? Format.valueOf(args[5].toUpperCase(Locale.ROOT)) : Format.DOT;
+    } catch (final IllegalArgumentException e) {
+      MessageCli.GENERATOR_USAGE.printMessage(
+          Arrays.toString(Family.values()), Arrays.toString(Format.values()));
+      return;
+    }
+
+    final long start = System.nanoTime();
+    final long edges = generator.write(file, format);
+    MessageCli.GRAPH_GENERATED.printMessage(
+        String.valueOf(generator.verticies),
+        String.valueOf(edges),
+        file.toString(),
+        String.valueOf((System.nanoTime() - start) / 1_000_000));
+  }
+}
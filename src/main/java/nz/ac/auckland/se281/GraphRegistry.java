@@ -0,0 +1,148 @@
+package nz.ac.auckland.se281;
+
+import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import nz.ac.auckland.se281.datastructures.Representation;
+
+/**
+ * The graphs opened by the sessions of a {@link GraphServer}.
+ *
+ * <p>Each file is loaded once per representation, by the first session to open it, and every
+ * session that opens it afterwards shares the same calculator. The calculator's graph is frozen
+ * once loaded, so sessions read it without locking, and edits made by one session are published
+ * to the others as a new version.
+ *
+ * <p>The registry counts the sessions that have each calculator open. Once the last of them
+ * releases it, by opening another file or ending, the calculator stops watching its file and is
+ * forgotten, so the next session to open the file loads it again.
+ */
+public class GraphRegistry {
+
+  /**
+   * A calculator that is loading or loaded, keyed by its file and representation, with how many
+   * sessions have it open. The count is guarded by the registry's lock.
+   */
+  private static final class Entry {
+    private final String key;
+    private final FutureTask<GraphCalculator> load;
+    private int sessions;
+
+    private Entry(final String key, final FutureTask<GraphCalculator> load) {
+      this.key = key;
+      this.load = load;
+    }
+  }
+
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  private final Map<GraphCalculator, Entry> loaded = new IdentityHashMap<>();
+
+  /**
+   * Returns the calculator for a file, loading it if no session has it open. A session that opens
+   * a file which is still loading waits for that load, rather than loading it again. Each
+   * calculator returned must be {@link #release(GraphCalculator) released} once the session is
+   * done with it.
+   *
+   * @param filename The name of the test case to read.
+   * @param representation Where and how the graph's adjacency is stored.
+   * @return The shared calculator.
+   * @throws FileNotFoundException If the file does not exist.
+   */
+  public GraphCalculator open(final String filename, final Representation representation)
+      throws FileNotFoundException {
+    final String key = representation + " " + filename;
+    Entry entry;
+    final boolean loading;
+
+    synchronized (this) {
+      entry = entries.get(key);
+      loading = entry == null;
+      if (loading) {
+        entry =
+            new Entry(key, new FutureTask<>(() -> new GraphCalculator(filename, representation)));
+        entries.put(key, entry);
+      }
+      entry.sessions++;
+    }
+
+    // Load outside the lock, so sessions opening other files are not held up.
+    if (loading) {
+      entry.load.run();
+    }
+
+    try {
+      final GraphCalculator calculator = entry.load.get();
+      synchronized (this) {
+        loaded.put(calculator, entry);
+      }
+      return calculator;
+    } catch (final ExecutionException e) {
+      // Forget the failed load, so the file can be opened once it exists.
+      synchronized (this) {
+        entry.sessions--;
+        entries.remove(key, entry);
+      }
+
+      if (e.getCause() instanceof FileNotFoundException) {
+        throw (FileNotFoundException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (final InterruptedException e) {
+      synchronized (this) {
+        release(entry);
+      }
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading " + filename, e);
+    }
+  }
+
+  /**
+   * Releases a calculator a session opened, forgetting it once no session has it open.
+   *
+   * @param calculator The calculator returned by {@link #open(String, Representation)}.
+   */
+  public void release(final GraphCalculator calculator) {
+    final boolean forgotten;
+    synchronized (this) {
+      final Entry entry = loaded.get(calculator);
+      forgotten = entry != null && release(entry);
+      if (forgotten) {
+        loaded.remove(calculator);
+      }
+    }
+
+    if (forgotten) {
+      calculator.stopWatching();
+    }
+  }
+
+  /**
+   * Returns how many calculators are open.
+   *
+   * @return The number of files open in any representation.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Counts a session that no longer has a calculator open, forgetting the calculator if it was the
+   * last. The caller must hold the registry's lock.
+   *
+   * @param entry The calculator's entry.
+   * @return If the calculator was forgotten.
+   */
+  private boolean release(final Entry entry) {
+    if (--entry.sessions > 0) {
+      return false;
+    }
+    entries.remove(entry.key, entry);
+    return true;
+  }
+}
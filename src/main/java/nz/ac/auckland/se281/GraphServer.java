@@ -0,0 +1,134 @@
+package nz.ac.auckland.se281;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves graph calculator sessions to many clients at once over a local socket.
+ *
+ * <p>Each connection is a session that speaks the same commands as the command line interface,
+ * runs on its own thread, and buffers its output until it next waits for a command. Sessions that
+ * open the same file share one loaded graph through a {@link GraphRegistry}.
+ */
+public class GraphServer {
+
+  /** How many connections may wait to be accepted. */
+  private static final int BACKLOG = 4096;
+
+  private final int port;
+
+  private final GraphRegistry graphs = new GraphRegistry();
+
+  private final ExecutorService sessions = Executors.newCachedThreadPool();
+
+  private SessionOutput output;
+
+  private volatile ServerSocket server;
+
+  /**
+   * Creates a server for the given port.
+   *
+   * @param port The port to listen on, or 0 for any free port.
+   */
+  public GraphServer(final int port) {
+    this.port = port;
+  }
+
+  /**
+   * Accepts connections on the loopback address until the process is stopped, or the server is.
+   *
+   * @throws IOException If the port cannot be listened on.
+   */
+  public void start() throws IOException {
+    // Commands print to standard output, so send each session's prints to its own connection.
+    output = SessionOutput.install();
+
+    try (ServerSocket listening =
+        new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress())) {
+      server = listening;
+      MessageCli.SERVER_LISTENING.printMessage(String.valueOf(listening.getLocalPort()));
+
+      while (true) {
+        final Socket socket = listening.accept();
+        sessions.execute(() -> serve(socket));
+      }
+    } catch (final SocketException e) {
+      // Closing the server socket from stop() ends the accept loop.
+      if (server == null || !server.isClosed()) {
+        throw e;
+      }
+    } finally {
+      sessions.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns the port the server accepts connections on.
+   *
+   * @return The port, or -1 if the server is not listening yet.
+   */
+  public int getPort() {
+    final ServerSocket listening = server;
+    return listening != null ? listening.getLocalPort() : -1;
+  }
+
+  /**
+   * Returns the graphs the sessions have open.
+   *
+   * @return The registry of open graphs.
+   */
+  public GraphRegistry getGraphs() {
+    return graphs;
+  }
+
+  /**
+   * Stops accepting connections. Sessions already connected are interrupted, and end once their
+   * clients disconnect.
+   *
+   * @throws IOException If the server socket cannot be closed.
+   */
+  public void stop() throws IOException {
+    final ServerSocket listening = server;
+    if (listening != null) {
+      listening.close();
+    }
+  }
+
+  /**
+   * Runs a session on a connection until the client exits or disconnects.
+   *
+   * @param socket The connection.
+   */
+  private void serve(final Socket socket) {
+    try (socket;
+        PrintStream session =
+            new PrintStream(
+                new BufferedOutputStream(socket.getOutputStream()),
+                false,
+                StandardCharsets.UTF_8)) {
+      output.begin(session);
+      final Main main =
+          new Main(new Scanner(socket.getInputStream(), StandardCharsets.UTF_8), graphs);
+      try {
+        main.start();
+        session.flush();
+      } finally {
+        main.close();
+      }
+    } catch (IOException | NoSuchElementException e) {
+      // The client disconnected, so there is nobody left to report to.
+    } finally {
+      output.end();
+    }
+  }
+}
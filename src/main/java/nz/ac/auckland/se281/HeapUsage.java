@@ -0,0 +1,85 @@
+package nz.ac.auckland.se281;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Locale;
+
+/**
+ * Measures how much heap a load needs at its peak, compared to how much it retains once garbage
+ * has been collected.
+ *
+ * <p>The peak is the sum of each heap pool's peak usage, so it is an upper bound when the pools
+ * peak at different times. Measuring collects garbage before and after the load, which slows it
+ * down, so loads are only measured when the {@value #REPORT_PROPERTY} system property is true.
+ */
+public class HeapUsage {
+
+  /** The system property that turns on measuring the heap each load uses. */
+  public static final String REPORT_PROPERTY = "graph.heap.report";
+
+  private final long baseline;
+
+  /** Starts measuring from the currently retained heap. */
+  public HeapUsage() {
+    System.gc();
+    baseline = used();
+
+    for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  /**
+   * Stops measuring, and prints the peak and retained heap since measuring started.
+   *
+   * <p>Anything only referenced by the load itself must already be unreachable, so this should be
+   * called after the loading method has returned.
+   */
+  public void printUsage() {
+    long peak = 0;
+    for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+
+    System.gc();
+    final long retained = used() - baseline;
+
+    MessageCli.HEAP_USAGE.printMessage(
+        format(Math.max(0, peak - baseline)), format(Math.max(0, retained)));
+  }
+
+  /**
+   * Returns the heap currently in use.
+   *
+   * @return The used bytes.
+   */
+  private long used() {
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  /**
+   * Formats a number of bytes to one decimal place of the largest fitting unit.
+   *
+   * @param bytes The number of bytes.
+   * @return The formatted size.
+   */
+  static String format(final long bytes) {
+    if (bytes < 1024) {
+      return bytes + " B";
+    }
+
+    final String[] units = {"KB", "MB", "GB", "TB"};
+    double size = bytes / 1024.0;
+    int unit = 0;
+    while (size >= 1024 && unit < units.length - 1) {
+      size /= 1024;
+      unit++;
+    }
+    return String.format(Locale.ROOT, "%.1f %s", size, units[unit]);
+  }
+}
@@ -0,0 +1,141 @@
+package nz.ac.auckland.se281;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts latencies in buckets that double in width, from under a microsecond to over a day.
+ *
+ * <p>Recording is lock-free, so any thread may record while another prints. Percentiles are the
+ * upper bound of the bucket they fall in, so they are at most twice the true latency, but never
+ * more than the largest latency recorded.
+ */
+public class LatencyHistogram {
+
+  /** Bucket i holds latencies under 2^i microseconds, and the last holds everything longer. */
+  private static final int BUCKETS = 38;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  private final LongAdder totalNanos = new LongAdder();
+
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Records a latency.
+   *
+   * @param nanos The latency in nanoseconds.
+   */
+  public void record(final long nanos) {
+    final long micros = Math.max(0, nanos) / 1000;
+    counts.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+  }
+
+  /**
+   * Returns how many latencies have been recorded.
+   *
+   * @return The number of latencies.
+   */
+  public long getCount() {
+    long count = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      count += counts.get(bucket);
+    }
+    return count;
+  }
+
+  /**
+   * Returns the sum of the latencies recorded.
+   *
+   * @return The sum in nanoseconds.
+   */
+  public long getTotalNanos() {
+    return totalNanos.sum();
+  }
+
+  /**
+   * Returns the largest latency recorded.
+   *
+   * @return The largest latency in nanoseconds, or 0 if there are none.
+   */
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  /**
+   * Returns a percentile of the latencies recorded, by nearest rank.
+   *
+   * @param percentile The percentile, from 0 to 100.
+   * @return The upper bound of the percentile's bucket in nanoseconds, or 0 if there are none.
+   */
+  public long getPercentileNanos(final double percentile) {
+    final long[] snapshot = getBucketCounts();
+    long count = 0;
+    for (final long bucketCount : snapshot) {
+      count += bucketCount;
+    }
+
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += snapshot[bucket];
+      if (seen >= rank) {
+        return Math.min(getBucketBoundNanos(bucket), getMaxNanos());
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Returns how many latencies each bucket holds, at one moment.
+   *
+   * @return The count of each bucket, from the shortest latencies to the longest.
+   */
+  public long[] getBucketCounts() {
+    final long[] snapshot = new long[BUCKETS];
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      snapshot[bucket] = counts.get(bucket);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns the latency that every latency in a bucket is under. The last bucket has no bound.
+   *
+   * @param bucket The bucket.
+   * @return The bound in nanoseconds, or {@link Long#MAX_VALUE} for the last bucket.
+   */
+  public static long getBucketBoundNanos(final int bucket) {
+    return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) * 1000;
+  }
+
+  /**
+   * Forgets every latency recorded. Latencies recorded meanwhile may be partly forgotten.
+   */
+  public void reset() {
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      counts.set(bucket, 0);
+    }
+    totalNanos.reset();
+    maxNanos.reset();
+  }
+
+  /**
+   * Formats a latency in the largest unit under it.
+   *
+   * @param nanos The latency in nanoseconds.
+   * @return The formatted latency.
+   */
+  static String format(final long nanos) {
+    if (nanos < 1_000_000) {
+      return nanos / 1000 + " us";
+    } else if (nanos < 1_000_000_000) {
+      return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+    }
+    return String.format(Locale.ROOT, "%.1f s", nanos / 1e9);
+  }
+}
@@ -1,18 +1,86 @@
 package nz.ac.auckland.se281;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
+import nz.ac.auckland.se281.datastructures.Budget;
+import nz.ac.auckland.se281.datastructures.Representation;
 
 /**
  * The entry point of the graph calculator command line interface.
- *
- * <p>You should not modify this class.
  */
 public class Main {
-  private static final String COMMAND_PREFIX = "graph-calculator> ";
+  static final String COMMAND_PREFIX = "graph-calculator> ";
 
-  public static void main(final String[] args) {
-    new Main(new Scanner(System.in)).start();
+  /**
+   * Runs the command line interface, or with "--serve PORT" serves sessions over a local socket.
+   * With "--record FILE", each line entered is also saved to the file, as a script to replay.
+   * Either may be preceded by "--metrics PORT", to serve metrics for Prometheus meanwhile.
+   *
+   * @param args The command line arguments.
+   * @throws IOException If the server cannot listen on the port, or the file cannot be written.
+   */
+  public static void main(final String[] args) throws IOException {
+    if (args.length < 2 || !args[0].equals("--metrics")) {
+      run(args);
+      return;
+    }
+
+    final MetricsServer metrics;
+    try {
+      metrics = new MetricsServer(Integer.parseInt(args[1]));
+    } catch (final IllegalArgumentException e) {
+      MessageCli.INVALID_PORT.printMessage(args[1]);
+      return;
+    } catch (final IOException e) {
+      MessageCli.METRICS_FAILED.printMessage(args[1]);
+      return;
+    }
+
+    MessageCli.METRICS_SERVING.printMessage(String.valueOf(metrics.getPort()));
+    try {
+      run(Arrays.copyOfRange(args, 2, args.length));
+    } finally {
+      metrics.stop();
+    }
+  }
+
+  /**
+   * Runs the command line interface, or serves sessions, as the remaining arguments ask.
+   *
+   * @param args The command line arguments, without any metrics option.
+   * @throws IOException If the server cannot listen on the port, or the file cannot be written.
+   */
+  private static void run(final String[] args) throws IOException {
+    if (args.length == 2 && args[0].equals("--serve")) {
+      try {
+        new GraphServer(Integer.parseInt(args[1])).start();
+      } catch (final IllegalArgumentException e) {
+        MessageCli.INVALID_PORT.printMessage(args[1]);
+      }
+      return;
+    }
+
+    final Main main = new Main(new Scanner(System.in));
+    if (args.length == 2 && args[0].equals("--record")) {
+      try (PrintWriter recording =
+          new PrintWriter(Files.newBufferedWriter(Path.of(args[1]), StandardCharsets.UTF_8))) {
+        main.recording = recording;
+        main.start();
+      }
+      return;
+    }
+
+    main.start();
   }
 
   /**
@@ -42,17 +110,62 @@ public class Main {
     return sb.toString();
   }
 
+  /** The commands that only read the graph, which may run in the background. */
+  private static final Set<Command> BACKGROUND_COMMANDS =
+      EnumSet.of(
+          Command.LIST_VERTICIES_EDGES,
+          Command.LIST_ROOT_VERTICIES,
+          Command.CHECK_REFLEXIVITY,
+          Command.CHECK_SYMMETRY,
+          Command.CHECK_TRANSITIVITY,
+          Command.CHECK_ANTISYMMETRY,
+          Command.CHECK_EQUIVALENCE,
+          Command.COMPUTE_EQUIVALENCE,
+          Command.RELATION_PROFILE,
+          Command.GRAPH_SEARCH_IBFS,
+          Command.GRAPH_SEARCH_IDFS,
+          Command.GRAPH_SEARCH_RBFS,
+          Command.GRAPH_SEARCH_RDFS);
+
+  /** The property checks that a line of commands computes together. */
+  private static final Set<Command> PROPERTY_CHECKS =
+      EnumSet.of(
+          Command.CHECK_REFLEXIVITY,
+          Command.CHECK_SYMMETRY,
+          Command.CHECK_TRANSITIVITY,
+          Command.CHECK_ANTISYMMETRY,
+          Command.CHECK_EQUIVALENCE);
+
   private final Scanner scanner;
 
+  private final GraphRegistry graphs;
+
   private GraphCalculator calculator;
 
+  private final BackgroundJobs jobs = new BackgroundJobs();
+
+  private Budget budget = Budget.UNLIMITED;
+
+  private PrintWriter recording;
+
   /**
    * Create a new command line interface.
    *
    * @param scanner The scanner to read user input from.
    */
   public Main(final Scanner scanner) {
+    this(scanner, null);
+  }
+
+  /**
+   * Create a new session of a server, which shares the graphs it opens with other sessions.
+   *
+   * @param scanner The scanner to read the session's commands from.
+   * @param graphs The graphs opened by every session, or null to load files privately.
+   */
+  public Main(final Scanner scanner, final GraphRegistry graphs) {
     this.scanner = scanner;
+    this.graphs = graphs;
   }
 
   /** Process commands from the user for the graph calculator command line interface. */
@@ -64,8 +177,96 @@ public class Main {
     // Prompt and process commands until the exit command.
     do {
       System.out.print(COMMAND_PREFIX);
+
+      // Send the buffered output before waiting, as a session's client may be waiting for it.
+      System.out.flush();
       command = scanner.nextLine().trim();
-    } while (processCommand(command));
+
+      if (recording != null) {
+        recording.println(command);
+        recording.flush();
+      }
+    } while (processLine(command));
+  }
+
+  /**
+   * Releases the graph a session of a server has open, so it can be forgotten once no session has
+   * it open. A command line interface keeps its graph until it exits.
+   */
+  public void close() {
+    if (graphs != null && calculator != null) {
+      graphs.release(calculator);
+      calculator = null;
+    }
+  }
+
+  /**
+   * Execute each command on a line entered by the user, in order, and determine if more commands
+   * are expected. Commands are separated by ';'.
+   *
+   * <p>Before a run of commands that only read the graph, the property checks among them are
+   * computed together in one pass over the edges, after reloading the file if it is watched and
+   * has changed, then each command prints its result in turn.
+   *
+   * @param line The line entered by the user.
+   * @return If the program should continue to wait for another command.
+   */
+  boolean processLine(final String line) {
+    final String[] inputs = line.split(";");
+    int planned = -1;
+
+    for (int i = 0; i < inputs.length; i++) {
+      // Allow a trailing ';', or an empty command between two.
+      if (inputs.length > 1 && inputs[i].isBlank()) {
+        continue;
+      }
+
+      if (i > planned && calculator != null) {
+        final List<Command> checks = new ArrayList<>();
+        planned = i;
+        while (planned < inputs.length && isForegroundQuery(inputs[planned])) {
+          final Command command = parseCommand(inputs[planned]);
+          if (PROPERTY_CHECKS.contains(command) && !checks.contains(command)) {
+            checks.add(command);
+          }
+          planned++;
+        }
+        if (checks.size() > 1) {
+          // Answer for the file as it is now, rather than the version the reload replaces.
+          calculator.reloadIfChanged();
+          budget.run(() -> calculator.computeProperties(checks));
+        }
+      }
+
+      if (!processCommand(inputs[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Determines if a command only reads the graph and runs in the foreground.
+   *
+   * @param input The command entered by the user.
+   * @return If the command only reads the graph now.
+   */
+  private static boolean isForegroundQuery(final String input) {
+    return BACKGROUND_COMMANDS.contains(parseCommand(input)) && !input.trim().endsWith("&");
+  }
+
+  /**
+   * Finds the command entered by the user, without reporting anything if there is none.
+   *
+   * @param input The command entered by the user.
+   * @return The command, or null if there is no such command.
+   */
+  static Command parseCommand(final String input) {
+    try {
+      return Command.valueOf(input.trim().split(" ")[0].toUpperCase().replaceAll("-", "_"));
+    } catch (final IllegalArgumentException e) {
+      return null;
+    }
   }
 
   /**
@@ -78,6 +279,12 @@ public class Main {
     // Remove whitespace at the beginning and end of the input.
     input = input.trim();
 
+    // A trailing '&' runs the command in the background, as in a shell.
+    final boolean background = input.endsWith("&");
+    if (background) {
+      input = input.substring(0, input.length() - 1).trim();
+    }
+
     final String[] args = input.split(" ");
 
     // Allow any case, and dashes to be used instead of underscores.
@@ -102,30 +309,142 @@ public class Main {
     }
 
     // A file is only open if there is a calculator instance.
-    // The user cannot do anything other than open a file, exit,
-    // or get help if there is no file.
+    // The user cannot do anything other than open a file, analyse every file, set the budget,
+    // see the statistics, manage background jobs, exit, or get help if there is no file.
     if (calculator == null
         && command != Command.OPEN_FILE
+        && command != Command.OPEN_FILE_AS
+        && command != Command.ANALYSE_ALL
+        && command != Command.BUDGET
+        && command != Command.STATS
+        && command != Command.RESET_STATS
+        && command != Command.JOBS
+        && command != Command.WAIT
+        && command != Command.CANCEL
         && command != Command.EXIT
         && command != Command.HELP) {
       MessageCli.FILE_NOT_OPEN.printMessage();
       return true;
     }
 
+    // Apply any changes to a watched file before running the command against it.
+    if (calculator != null) {
+      calculator.reloadIfChanged();
+    }
+
+    if (background) {
+      if (!BACKGROUND_COMMANDS.contains(command)) {
+        MessageCli.COMMAND_NOT_BACKGROUND.printMessage(commandStr);
+      } else {
+        // Keep running against this file's graph even if another file is opened meanwhile.
+        final GraphCalculator jobCalculator = calculator;
+        final Budget jobBudget = budget;
+        jobs.submit(
+            input,
+            () -> {
+              final long start = System.nanoTime();
+              try {
+                jobBudget.run(() -> runQuery(jobCalculator, command, args));
+              } finally {
+                Statistics.recordCommand(command, start);
+              }
+            });
+      }
+      return true;
+    }
+
+    final long start = System.nanoTime();
+    try {
+      return runCommand(command, args);
+    } finally {
+      Statistics.recordCommand(command, start);
+    }
+  }
+
+  /**
+   * Runs a command in the foreground, once its arguments have been checked.
+   *
+   * @param command The command to run.
+   * @param args The arguments provided by the user.
+   * @return If the program should continue to wait for another command.
+   */
+  private boolean runCommand(final Command command, final String[] args) {
     switch (command) {
       case OPEN_FILE:
-        final String filename = args[1];
-
-        try {
-          calculator = new GraphCalculator(filename);
-          MessageCli.OPENED_FILE_SUCCESSFULLY.printMessage(filename);
-        } catch (FileNotFoundException e) {
-          MessageCli.FILE_NOT_FOUND.printMessage(filename);
-        }
+        openFile(args[1], Representation.AUTO);
+        break;
+      case OPEN_FILE_AS:
+        openFileAs(args[1], args[2]);
         break;
       case INFO:
         calculator.printInfo();
         break;
+      case WATCH:
+        try {
+          calculator.watch();
+          MessageCli.WATCHING_FILE.printMessage(calculator.getFilename());
+        } catch (IOException e) {
+          MessageCli.WATCH_FAILED.printMessage(calculator.getFilename());
+        }
+        break;
+      case ADD_EDGE:
+        calculator.addEdge(args[1], args[2]);
+        break;
+      case REMOVE_EDGE:
+        calculator.removeEdge(args[1], args[2]);
+        break;
+      case APPLY_PATCH:
+        calculator.applyPatch(args[1]);
+        break;
+      case ANALYSE_ALL:
+        analyseAll(args[1]);
+        break;
+      case BUDGET:
+        setBudget(args[1], args[2]);
+        break;
+      case STATS:
+        Statistics.print();
+        break;
+      case RESET_STATS:
+        Statistics.reset();
+        MessageCli.STATS_RESET.printMessage();
+        break;
+      case JOBS:
+        jobs.printJobs();
+        break;
+      case WAIT:
+        jobs.waitFor(args[1]);
+        break;
+      case CANCEL:
+        jobs.cancel(args[1]);
+        break;
+      case EXIT:
+        MessageCli.END.printMessage();
+
+        // Signal that the program should exit.
+        return false;
+      case HELP:
+        System.out.println(help());
+        break;
+      default:
+        budget.run(() -> runQuery(calculator, command, args));
+        break;
+    }
+
+    // Signal that another command is expected.
+    return true;
+  }
+
+  /**
+   * Runs a command that only reads the graph, so it may also run in the background.
+   *
+   * @param calculator The calculator of the graph to read.
+   * @param command The command to run.
+   * @param args The arguments provided by the user.
+   */
+  private static void runQuery(
+      final GraphCalculator calculator, final Command command, final String[] args) {
+    switch (command) {
       case LIST_VERTICIES_EDGES:
         calculator.printVerticiesEdges();
         break;
@@ -150,6 +469,9 @@ public class Main {
       case COMPUTE_EQUIVALENCE:
         calculator.printEquivalenceClass(args[1]);
         break;
+      case RELATION_PROFILE:
+        calculator.printRelationProfile();
+        break;
       case GRAPH_SEARCH_IBFS:
         calculator.printIterativeBreadthFirstSearch();
         break;
@@ -162,18 +484,145 @@ public class Main {
       case GRAPH_SEARCH_RDFS:
         calculator.printRecursiveDepthFirstSearch();
         break;
-      case EXIT:
-        MessageCli.END.printMessage();
+      default:
+        throw new IllegalArgumentException(command + " does not only read the graph");
+    }
+  }
 
-        // Signal that the program should exit.
-        return false;
-      case HELP:
-        System.out.println(help());
-        break;
+  /**
+   * Open a file, holding the graph's adjacency in the named representation.
+   *
+   * @param filename The name of the test case to read.
+   * @param representationStr The name of the representation to use.
+   */
+  private void openFileAs(final String filename, final String representationStr) {
+    final Representation representation;
+
+    try {
+      // Representation names correspond to the enum names.
+      representation = Representation.valueOf(representationStr.toUpperCase().replaceAll("-", "_"));
+    } catch (final IllegalArgumentException e) {
+      MessageCli.REPRESENTATION_NOT_FOUND.printMessage(
+          representationStr, Arrays.toString(Representation.values()));
+      return;
     }
 
-    // Signal that another command is expected.
-    return true;
+    openFile(filename, representation);
+  }
+
+  /**
+   * Open a file, and report the heap used to load it. Sessions of a server share the graphs they
+   * open, so the heap is not reported, as another session may already have loaded the file.
+   *
+   * @param filename The name of the test case to read.
+   * @param representation Where and how the graph's adjacency is stored.
+   */
+  private void openFile(final String filename, final Representation representation) {
+    if (graphs != null) {
+      // Other sessions may be using the previous graph, so it is left open and watched.
+      try {
+        final GraphCalculator opened = graphs.open(filename, representation);
+        close();
+        calculator = opened;
+        MessageCli.OPENED_FILE_SUCCESSFULLY.printMessage(filename);
+      } catch (FileNotFoundException e) {
+        MessageCli.FILE_NOT_FOUND.printMessage(filename);
+      }
+      return;
+    }
+
+    final HeapUsage heapUsage =
+        Boolean.getBoolean(HeapUsage.REPORT_PROPERTY) ? new HeapUsage() : null;
+
+    try {
+      final GraphCalculator loaded = new GraphCalculator(filename, representation);
+      // The previous graph is only replaced once the new one has loaded, so a mistyped name
+      // leaves it open.
+      if (calculator != null) {
+        calculator.stopWatching();
+      }
+      calculator = loaded;
+      MessageCli.OPENED_FILE_SUCCESSFULLY.printMessage(filename);
+      if (heapUsage != null) {
+        heapUsage.printUsage();
+      }
+    } catch (FileNotFoundException e) {
+      MessageCli.FILE_NOT_FOUND.printMessage(filename);
+    }
+  }
+
+  /**
+   * Runs the given commands on every test case, loading and analysing the files in parallel. Each
+   * command is limited by the budget, separately for each file.
+   *
+   * @param commandsStr The commands to run, separated by commas.
+   */
+  private void analyseAll(final String commandsStr) {
+    final List<Command> commands = new ArrayList<>();
+    for (final String commandStr : commandsStr.split(",")) {
+      final Command command = parseCommand(commandStr);
+      if (!BACKGROUND_COMMANDS.contains(command) || command.getNumArgs() > 0) {
+        MessageCli.ANALYSIS_INVALID_COMMAND.printMessage(commandStr);
+        return;
+      }
+      commands.add(command);
+    }
+
+    final List<String> filenames;
+    try {
+      filenames = GraphCalculator.listTestcases();
+    } catch (final IOException e) {
+      MessageCli.ANALYSIS_LIST_FAILED.printMessage();
+      return;
+    }
+
+    final Budget fileBudget = budget;
+    new BatchAnalysis(
+            commands,
+            (fileCalculator, command) ->
+                fileBudget.run(
+                    () -> runQuery(fileCalculator, command, new String[] {command.name()})))
+        .run(filenames);
+  }
+
+  /**
+   * Limits the time and verticies visited by each later command that reads the graph.
+   *
+   * @param millisStr The time limit in milliseconds, or 0 for no limit.
+   * @param stepsStr The limit on verticies visited, or 0 for no limit.
+   */
+  private void setBudget(final String millisStr, final String stepsStr) {
+    final long millis = parseLimit(millisStr);
+    final long steps = millis < 0 ? -1 : parseLimit(stepsStr);
+
+    if (steps >= 0) {
+      budget = new Budget(millis, steps);
+      if (millis == 0 && steps == 0) {
+        MessageCli.BUDGET_CLEARED.printMessage();
+      } else {
+        MessageCli.BUDGET_SET.printMessage(budget.toString());
+      }
+    }
+  }
+
+  /**
+   * Parses a limit of a budget, printing an error if it is not a number of at least 0.
+   *
+   * @param limitStr The limit.
+   * @return The limit, or -1 if it is not valid.
+   */
+  private static long parseLimit(final String limitStr) {
+    try {
+      final long limit = Long.parseLong(limitStr);
+      if (limit >= 0) {
+        return limit;
+      }
+    } catch (final NumberFormatException e) {
+      // Reported below, along with negative limits.
+    }
+
+    MessageCli.INVALID_BUDGET.printMessage(limitStr);
+    return -1;
   }
 
   /**
@@ -2,8 +2,6 @@ package nz.ac.auckland.se281;
 
 /**
  * Templates of messages that can be printed to the CLI.
- *
- * <p>You should not modify this class.
  */
 public enum MessageCli {
   COMMAND_NOT_FOUND(
@@ -15,13 +13,87 @@ public enum MessageCli {
   OPENED_FILE_SUCCESSFULLY("Successfully opened graph from file %s"),
   FILE_NOT_OPEN("Error: no valid file open"),
   FILE_NOT_FOUND("Error: file '%s' not found in `testcases` folder"),
+  REPRESENTATION_NOT_FOUND("Error: representation '%s' not found (expected one of %s)"),
   INFO("File name: %s"),
+  REPRESENTATION("Adjacency held as %s"),
+  FOOTPRINT("Heap footprint: %s retained, %s per edge"),
+  FOOTPRINT_STRUCTURE("\t%s: %s"),
+  FOOTPRINT_OFF_HEAP("\t%s mapped outside the heap"),
+  FOOTPRINT_READ(
+      "Reading the file also held %s of verticies, edges and Edge objects until the graph was"
+          + " built"),
+  HEAP_USAGE("Loading used %s of heap at peak and retained %s"),
+  WATCHING_FILE("Watching %s for changes"),
+  WATCH_FAILED("Error: could not watch '%s' for changes"),
+  FILE_RELOADED("Reloaded %s with %s edges added and %s removed"),
+  FILE_RELOADED_REBUILT("Reloaded %s, rebuilding the graph as its verticies changed"),
+  FILE_RELOAD_FAILED("Error: could not reload '%s', keeping the previous graph"),
+
+  EDGE_ADDED("Added edge %s -> %s"),
+  EDGE_ALREADY_EXISTS("Edge %s -> %s is already in the graph"),
+  EDGE_REMOVED("Removed edge %s -> %s"),
+  EDGE_NOT_FOUND("Edge %s -> %s is not in the graph"),
+  INVALID_VERTEX("Error: vertex '%s' is not a number"),
+  PATCH_APPLIED("Applied %s with %s edges added and %s removed in %s ms (%s edges per second)"),
+  PATCH_INVALID_LINE(
+      "Error: line %s of patch '%s' is not '+ SOURCE -> DESTINATION' or '- SOURCE -> DESTINATION'"),
+  PATCH_READ_FAILED("Error: could not read patch '%s'"),
+  SERVER_LISTENING("Serving graph calculator sessions on port %s"),
+  INVALID_PORT("Error: '%s' is not a valid port"),
+  METRICS_SERVING("Serving metrics at http://localhost:%s/metrics"),
+  METRICS_FAILED("Error: could not serve metrics on port %s"),
+  JOB_STARTED("[%s] Started '%s' in the background"),
+  JOB_STATUS("[%s] %s '%s' (%s ms)"),
+  NO_JOBS("There are no background jobs"),
+  JOB_NOT_FOUND("Error: there is no background job '%s'"),
+  JOB_CANCELLED("[%s] Cancelled '%s'"),
+  JOB_ALREADY_FINISHED("[%s] '%s' has already finished, wait for it to see its output"),
+  JOB_FAILED("[%s] '%s' failed: %s"),
+  JOB_FORGOTTEN("[%s] Forgot the output of '%s', as only %s finished jobs are kept"),
+  COMMAND_NOT_BACKGROUND("Error: %s cannot run in the background"),
+  ANALYSIS_FILE("== %s =="),
+  ANALYSIS_SUMMARY(
+      "Analysed %s files with %s verticies and %s edges in %s ms on %s threads (%s files per"
+          + " second, %s edges per second)"),
+  ANALYSIS_INVALID_COMMAND(
+      "Error: '%s' cannot run on every test case, use commands that only read the graph and take"
+          + " no arguments"),
+  ANALYSIS_LIST_FAILED("Error: could not list the test cases"),
+  ANALYSIS_FILE_FAILED("Error: could not analyse '%s': %s"),
+  ANALYSIS_FAILURES("%s of the files could not be analysed"),
+  GENERATOR_USAGE(
+      "Usage: FAMILY VERTICIES PARAMETER SEED FILE [FORMAT], where FAMILY is one of %s and FORMAT"
+          + " is one of %s"),
+  GRAPH_GENERATED("Generated %s verticies and %s edges into %s in %s ms"),
+  REPLAY_COMMAND("%s: %s runs, p50 %s us, p99 %s us, %s allocated per run"),
+  REPLAY_SUMMARY("Replayed %s commands in %s ms (%s commands per second)"),
+  REPLAY_USAGE("Usage: [--warmup RUNS] [--repeat RUNS] SCRIPT..."),
+  REPLAY_READ_FAILED("Error: could not read script '%s'"),
+  STATS_SECTION("%s:"),
+  STATS_LATENCY("\t%s: %s runs, mean %s, p50 %s, p99 %s, max %s"),
+  STATS_SEARCH(
+      "\t%s: %s runs, %s verticies visited and %s edges scanned (%s and %s per run)"),
+  STATS_NONE("\tNothing has run yet"),
+  STATS_RESET("Statistics have been reset"),
+  BUDGET_SET("Each command is now limited to %s"),
+  BUDGET_CLEARED("Commands are no longer limited"),
+  INVALID_BUDGET("Error: '%s' is not a number of milliseconds or verticies, use 0 for no limit"),
+  BUDGET_INCONCLUSIVE("The result is inconclusive, as the command ran out of its %s"),
+  BUDGET_PARTIAL("Showing the first %s verticies found, as the search ran out of its %s"),
 
   GRAPH_REFLEXIVE("The graph is %sreflexive"),
   GRAPH_SYMMETRIC("The graph is %ssymmetric"),
   GRAPH_ANTI_SYMMETRIC("The graph is %santisymmetric"),
   GRAPH_EQUIVALENCE("The graph is %san equivalence relation"),
   GRAPH_TRANSITIVE("The graph is %stransitive"),
+  RELATION_COUNTS(
+      "The graph has %s verticies and %s edges, with %s self-loops, %s edges without their"
+          + " reverse and %s pairs of verticies joined both ways"),
+  PROPERTY_COUNTEREXAMPLE("%s, as %s"),
+  NO_SELF_LOOP("there is no edge %s -> %s"),
+  NO_REVERSE("there is an edge %s -> %s but no edge %s -> %s"),
+  BOTH_WAYS("there are edges %s -> %s and %s -> %s"),
+  NO_SHORTCUT("there are edges %s -> %s and %s -> %s but no edge %s -> %s"),
 
   END("You closed the terminal. Goodbye.");
 
@@ -0,0 +1,270 @@
+package nz.ac.auckland.se281;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.SearchStats;
+
+/**
+ * Counts the graphs loaded and the result cache's hits, and formats them with the {@link
+ * Statistics} in the Prometheus text format.
+ *
+ * <p>Counting only adds to {@link LongAdder}s, so it never locks. The resident graphs are those
+ * of every calculator that has not been garbage collected yet, so a graph that was closed still
+ * counts until the collector has freed it. RESET_STATS resets the latencies and searches, which
+ * Prometheus reads as a counter restarting.
+ */
+public final class Metrics {
+
+  private static final String PREFIX = "graph_calculator_";
+
+  private static final LongAdder GRAPHS_LOADED = new LongAdder();
+
+  private static final LongAdder CACHE_HITS = new LongAdder();
+
+  private static final LongAdder CACHE_MISSES = new LongAdder();
+
+  private static final Queue<WeakReference<GraphCalculator>> CALCULATORS =
+      new ConcurrentLinkedQueue<>();
+
+  /** Where the collector puts the references of calculators it has freed. */
+  private static final ReferenceQueue<GraphCalculator> COLLECTED = new ReferenceQueue<>();
+
+  private Metrics() {}
+
+  /**
+   * Counts a graph that was loaded, and keeps it resident until its calculator is collected.
+   *
+   * @param calculator The calculator that loaded the graph.
+   */
+  static void recordLoad(final GraphCalculator calculator) {
+    GRAPHS_LOADED.increment();
+
+    // Forget the calculators that were collected, so a server that is never scraped does not keep
+    // a reference for every graph it ever loaded.
+    boolean collected = false;
+    while (COLLECTED.poll() != null) {
+      collected = true;
+    }
+    if (collected) {
+      CALCULATORS.removeIf(reference -> reference.get() == null);
+    }
+    CALCULATORS.add(new WeakReference<>(calculator, COLLECTED));
+  }
+
+  /**
+   * Counts a lookup in a result cache.
+   *
+   * @param hit If the result was cached.
+   */
+  static void recordCacheLookup(final boolean hit) {
+    (hit ? CACHE_HITS : CACHE_MISSES).increment();
+  }
+
+  /**
+   * Formats every metric in the Prometheus text format.
+   *
+   * @return The metrics, one sample per line.
+   */
+  static String format() {
+    final StringBuilder sb = new StringBuilder();
+
+    header(sb, "commands_total", "counter", "Commands executed, by command.");
+    for (final Command command : Command.values()) {
+      final long count = Statistics.getCommand(command).getCount();
+      if (count > 0) {
+        sample(sb, "commands_total", "command", command.name(), count);
+      }
+    }
+
+    header(sb, "command_duration_seconds", "histogram", "Latency of each command.");
+    for (final Command command : Command.values()) {
+      final LatencyHistogram latencies = Statistics.getCommand(command);
+      histogram(sb, "command_duration_seconds", "command", command.name(), latencies);
+    }
+
+    header(sb, "load_phase_duration_seconds", "histogram", "Latency of each phase of loading.");
+    for (final Statistics.Phase phase : Statistics.Phase.values()) {
+      final LatencyHistogram latencies = Statistics.getPhase(phase);
+      histogram(sb, "load_phase_duration_seconds", "phase", phase.name(), latencies);
+    }
+
+    header(sb, "search_runs_total", "counter", "Searches run, by search.");
+    for (final SearchStats.Search search : SearchStats.Search.values()) {
+      sample(sb, "search_runs_total", "search", search.name(), SearchStats.getRuns(search));
+    }
+    header(sb, "search_verticies_visited_total", "counter", "Verticies visited by searches.");
+    for (final SearchStats.Search search : SearchStats.Search.values()) {
+      final long visited = SearchStats.getVerticiesVisited(search);
+      sample(sb, "search_verticies_visited_total", "search", search.name(), visited);
+    }
+    header(sb, "search_edges_scanned_total", "counter", "Edges scanned by searches.");
+    for (final SearchStats.Search search : SearchStats.Search.values()) {
+      final long scanned = SearchStats.getEdgesScanned(search);
+      sample(sb, "search_edges_scanned_total", "search", search.name(), scanned);
+    }
+
+    header(sb, "graphs_loaded_total", "counter", "Graphs loaded from test cases.");
+    sample(sb, "graphs_loaded_total", GRAPHS_LOADED.sum());
+
+    long graphs = 0;
+    long verticies = 0;
+    long edges = 0;
+    final Iterator<WeakReference<GraphCalculator>> iterator = CALCULATORS.iterator();
+    while (iterator.hasNext()) {
+      final GraphCalculator calculator = iterator.next().get();
+      if (calculator == null) {
+        iterator.remove();
+        continue;
+      }
+      final Graph<String> graph = calculator.getGraph();
+      graphs++;
+      verticies += graph.getVertexCount();
+      edges += graph.getEdgeCount();
+    }
+    header(sb, "graphs_resident", "gauge", "Graphs held in memory.");
+    sample(sb, "graphs_resident", graphs);
+    header(sb, "verticies_resident", "gauge", "Verticies of the graphs held in memory.");
+    sample(sb, "verticies_resident", verticies);
+    header(sb, "edges_resident", "gauge", "Edges of the graphs held in memory.");
+    sample(sb, "edges_resident", edges);
+
+    final long hits = CACHE_HITS.sum();
+    final long misses = CACHE_MISSES.sum();
+    header(sb, "result_cache_hits_total", "counter", "Results answered from the result cache.");
+    sample(sb, "result_cache_hits_total", hits);
+    header(sb, "result_cache_misses_total", "counter", "Results computed as they were not cached.");
+    sample(sb, "result_cache_misses_total", misses);
+    header(sb, "result_cache_hit_ratio", "gauge", "Hits over all lookups in the result cache.");
+    sb.append(PREFIX)
+        .append("result_cache_hit_ratio ")
+        .append(number(hits + misses == 0 ? 0 : (double) hits / (hits + misses)))
+        .append('\n');
+
+    return sb.toString();
+  }
+
+  /**
+   * Appends the help and type lines of a metric.
+   *
+   * @param sb The metrics so far.
+   * @param name The metric's name, without the prefix.
+   * @param type The metric's type.
+   * @param help What the metric measures.
+   */
+  private static void header(
+      final StringBuilder sb, final String name, final String type, final String help) {
+    sb.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+    sb.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+  }
+
+  /**
+   * Appends a sample without labels.
+   *
+   * @param sb The metrics so far.
+   * @param name The metric's name, without the prefix.
+   * @param value The sample's value.
+   */
+  private static void sample(final StringBuilder sb, final String name, final long value) {
+    sb.append(PREFIX).append(name).append(' ').append(value).append('\n');
+  }
+
+  /**
+   * Appends a sample with one label.
+   *
+   * @param sb The metrics so far.
+   * @param name The metric's name, without the prefix.
+   * @param label The label's name.
+   * @param labelValue The label's value, which never needs escaping.
+   * @param value The sample's value.
+   */
+  private static void sample(
+      final StringBuilder sb,
+      final String name,
+      final String label,
+      final String labelValue,
+      final long value) {
+    sb.append(PREFIX)
+        .append(name)
+        .append('{')
+        .append(label)
+        .append("=\"")
+        .append(labelValue)
+        .append("\"} ")
+        .append(value)
+        .append('\n');
+  }
+
+  /**
+   * Appends the cumulative buckets, sum and count of a histogram, if it has any latencies.
+   *
+   * @param sb The metrics so far.
+   * @param name The metric's name, without the prefix.
+   * @param label The label's name.
+   * @param labelValue The label's value, which never needs escaping.
+   * @param latencies The latencies.
+   */
+  private static void histogram(
+      final StringBuilder sb,
+      final String name,
+      final String label,
+      final String labelValue,
+      final LatencyHistogram latencies) {
+    final long[] counts = latencies.getBucketCounts();
+    long count = 0;
+    for (final long bucketCount : counts) {
+      count += bucketCount;
+    }
+    if (count == 0) {
+      return;
+    }
+
+    final String labels = label + "=\"" + labelValue + "\"";
+    long cumulative = 0;
+    for (int bucket = 0; bucket < counts.length; bucket++) {
+      cumulative += counts[bucket];
+      final String bound =
+          bucket == counts.length - 1
+              ? "+Inf"
+              : number(LatencyHistogram.getBucketBoundNanos(bucket) / 1e9);
+      sb.append(PREFIX)
+          .append(name)
+          .append("_bucket{")
+          .append(labels)
+          .append(",le=\"")
+          .append(bound)
+          .append("\"} ")
+          .append(cumulative)
+          .append('\n');
+    }
+    sb.append(PREFIX)
+        .append(name)
+        .append("_sum{")
+        .append(labels)
+        .append("} ")
+        .append(number(latencies.getTotalNanos() / 1e9))
+        .append('\n');
+    sb.append(PREFIX)
+        .append(name)
+        .append("_count{")
+        .append(labels)
+        .append("} ")
+        .append(count)
+        .append('\n');
+  }
+
+  /**
+   * Formats a number as Prometheus expects, whatever the default locale.
+   *
+   * @param value The number.
+   * @return The formatted number.
+   */
+  private static String number(final double value) {
+    return String.format(Locale.ROOT, "%.9g", value).replaceFirst("\\.?0+(e|$)", "$1");
+  }
+}
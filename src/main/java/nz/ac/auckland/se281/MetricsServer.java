@@ -0,0 +1,74 @@
+package nz.ac.auckland.se281;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the {@link Metrics} in the Prometheus text format at "/metrics" on a local port, for a
+ * Prometheus server to scrape.
+ *
+ * <p>Scrapes are answered on one daemon thread, so they never hold up commands and the process
+ * still exits once the user does.
+ */
+public class MetricsServer {
+
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final HttpServer server;
+
+  /**
+   * Starts serving the metrics on the loopback address.
+   *
+   * @param port The port to listen on, or 0 for any free port.
+   * @throws IOException If the port cannot be listened on.
+   */
+  public MetricsServer(final int port) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/metrics", MetricsServer::scrape);
+    server.setExecutor(
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              final Thread thread = new Thread(runnable, "graph-calculator-metrics");
+              thread.setDaemon(true);
+              return thread;
+            }));
+    server.start();
+  }
+
+  /**
+   * Returns the port the metrics are served on.
+   *
+   * @return The port.
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /** Stops serving the metrics. */
+  public void stop() {
+    server.stop(0);
+  }
+
+  /**
+   * Answers a scrape with the current metrics.
+   *
+   * @param exchange The scrape's request and response.
+   * @throws IOException If the response cannot be sent.
+   */
+  private static void scrape(final HttpExchange exchange) throws IOException {
+    try (exchange) {
+      final byte[] body = Metrics.format().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package nz.ac.auckland.se281;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * A cache of printed analysis results on local disk, so repeated analyses of an unchanged graph
+ * return immediately, even after a restart.
+ *
+ * <p>Each graph has one properties file named by its content hash, size and the version of the
+ * results, holding the printed result of each command run against it. The cache is best effort: if
+ * it cannot be read or written, results are simply computed as normal.
+ *
+ * <p>The cache is off unless the {@value #DIRECTORY_PROPERTY} system property names a directory,
+ * as results written by one build would otherwise be served by the next.
+ */
+public class ResultCache {
+
+  /** The system property naming the cache directory. No value, or an empty one, disables it. */
+  public static final String DIRECTORY_PROPERTY = "graph.cache.dir";
+
+  /**
+   * The version of the cached results, which must change whenever a change to the graph or its
+   * commands could change what they print, so results of the earlier code are not served.
+   */
+  static final int FORMAT_VERSION = 2;
+
+  private static final String VERSION = version();
+
+  private final Path file;
+
+  private final Properties results = new Properties();
+
+  /** Creates an empty cache that is only held in memory, for a graph that was edited. */
+  public ResultCache() {
+    file = null;
+  }
+
+  /**
+   * Opens the cached results for a graph.
+   *
+   * @param contentHash The content hash of the graph.
+   * @param vertexCount The number of verticies in the graph.
+   * @param edgeCount The number of edges in the graph.
+   */
+  public ResultCache(final long contentHash, final int vertexCount, final long edgeCount) {
+    final String directory = System.getProperty(DIRECTORY_PROPERTY, "");
+
+    if (directory.isEmpty()) {
+      file = null;
+      return;
+    }
+
+    // The sizes guard against two different graphs sharing a hash.
+    file =
+        Path.of(directory)
+            .resolve(
+                String.format(
+                    "%016x-%d-%d-v%s.properties", contentHash, vertexCount, edgeCount, VERSION));
+
+    if (Files.isReadable(file)) {
+      try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        results.load(reader);
+      } catch (IOException | IllegalArgumentException e) {
+        // An unreadable cache is the same as an empty one.
+        results.clear();
+      }
+    }
+  }
+
+  /**
+   * Returns the cached result of a command, computing and storing it if it is not cached.
+   *
+   * @param key The command, and any arguments that affect its result.
+   * @param compute Computes the result if it is not cached.
+   * @return The result.
+   */
+  public String get(final String key, final Supplier<String> compute) {
+    final String cached = results.getProperty(key);
+    Metrics.recordCacheLookup(cached != null);
+
+    if (cached != null) {
+      return cached;
+    }
+
+    final String result = compute.get();
+    results.setProperty(key, result);
+    save();
+    return result;
+  }
+
+  /**
+   * Determines if a command's result is cached.
+   *
+   * @param key The command, and any arguments that affect its result.
+   * @return If the result is cached.
+   */
+  public boolean contains(final String key) {
+    return results.containsKey(key);
+  }
+
+  /**
+   * Stores results that were computed together, writing the cache once for all of them.
+   *
+   * @param computed The result of each command.
+   */
+  public void putAll(final Map<String, String> computed) {
+    results.putAll(computed);
+    save();
+  }
+
+  /**
+   * Returns the version of the results, with the build's version when it is packaged with one.
+   *
+   * @return The version.
+   */
+  private static String version() {
+    final String build = ResultCache.class.getPackage().getImplementationVersion();
+    return build == null ? String.valueOf(FORMAT_VERSION) : FORMAT_VERSION + "-" + build;
+  }
+
+  /** Writes the results to a temporary file, then moves it over the cache file. */
+  private void save() {
+    if (file == null) {
+      return;
+    }
+
+    try {
+      Files.createDirectories(file.getParent());
+      final Path temporary = Files.createTempFile(file.getParent(), "results", ".tmp");
+
+      try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+        results.store(writer, null);
+      }
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      // The result is still returned, it is just not remembered.
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package nz.ac.auckland.se281;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * A standard output that sends each thread's output to the stream of the session it is serving, so
+ * commands can keep printing to {@link System#out} when several sessions run at once.
+ *
+ * <p>Every print is passed straight to the session's own stream rather than through this stream's
+ * buffers, so sessions never wait on each other to print. Threads that are not serving a session
+ * print to the original standard output.
+ */
+public class SessionOutput extends PrintStream {
+
+  private final PrintStream fallback;
+
+  private final ThreadLocal<PrintStream> sessions = new ThreadLocal<>();
+
+  /**
+   * Creates a session output that prints to the given stream when no session is being served.
+   *
+   * @param fallback The stream to print to outside of a session.
+   */
+  public SessionOutput(final PrintStream fallback) {
+    super(fallback, true);
+    this.fallback = fallback;
+  }
+
+  /**
+   * Replaces standard output with a session output over it, unless it already is one.
+   *
+   * @return The session output that is now standard output.
+   */
+  public static synchronized SessionOutput install() {
+    if (!(System.out instanceof SessionOutput)) {
+      System.setOut(new SessionOutput(System.out));
+    }
+    return (SessionOutput) System.out;
+  }
+
+  /**
+   * Sends the current thread's output to a session's stream until {@link #end()} is called.
+   *
+   * @param session The session's stream.
+   */
+  public void begin(final PrintStream session) {
+    sessions.set(session);
+  }
+
+  /** Sends the current thread's output back to the original standard output. */
+  public void end() {
+    sessions.remove();
+  }
+
+  /**
+   * Returns the stream the current thread prints to.
+   *
+   * @return The current session's stream, or the original standard output.
+   */
+  private PrintStream current() {
+    final PrintStream session = sessions.get();
+    return session != null ? session : fallback;
+  }
+
+  @Override
+  public void flush() {
+    current().flush();
+  }
+
+  @Override
+  public boolean checkError() {
+    return current().checkError();
+  }
+
+  @Override
+  public void write(final int b) {
+    current().write(b);
+  }
+
+  @Override
+  public void write(final byte[] buf, final int off, final int len) {
+    current().write(buf, off, len);
+  }
+
+  @Override
+  public void print(final boolean b) {
+    current().print(b);
+  }
+
+  @Override
+  public void print(final char c) {
+    current().print(c);
+  }
+
+  @Override
+  public void print(final int i) {
+    current().print(i);
+  }
+
+  @Override
+  public void print(final long l) {
+    current().print(l);
+  }
+
+  @Override
+  public void print(final float f) {
+    current().print(f);
+  }
+
+  @Override
+  public void print(final double d) {
+    current().print(d);
+  }
+
+  @Override
+  public void print(final char[] s) {
+    current().print(s);
+  }
+
+  @Override
+  public void print(final String s) {
+    current().print(s);
+  }
+
+  @Override
+  public void print(final Object obj) {
+    current().print(obj);
+  }
+
+  @Override
+  public void println() {
+    current().println();
+  }
+
+  @Override
+  public void println(final boolean x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(final char x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(final int x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(final long x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(final float x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(final double x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(final char[] x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(final String x) {
+    current().println(x);
+  }
+
+  @Override
+  public void println(final Object x) {
+    current().println(x);
+  }
+
+  @Override
+  public PrintStream format(final String format, final Object... args) {
+    current().format(format, args);
+    return this;
+  }
+
+  @Override
+  public PrintStream format(final Locale l, final String format, final Object... args) {
+    current().format(l, format, args);
+    return this;
+  }
+
+  @Override
+  public PrintStream append(final CharSequence csq) {
+    current().append(csq);
+    return this;
+  }
+
+  @Override
+  public PrintStream append(final CharSequence csq, final int start, final int end) {
+    current().append(csq, start, end);
+    return this;
+  }
+
+  @Override
+  public PrintStream append(final char c) {
+    current().append(c);
+    return this;
+  }
+}
@@ -0,0 +1,158 @@
+package nz.ac.auckland.se281;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import nz.ac.auckland.se281.datastructures.SearchStats;
+
+/**
+ * Times the commands of every session, and the phases of loading a file, for the STATS command.
+ *
+ * <p>Each command and phase has its own {@link LatencyHistogram}, all created up front, so
+ * recording never locks or allocates. The work done by each search is counted by {@link
+ * SearchStats}, as the graph does not know about commands.
+ */
+public final class Statistics {
+
+  /** The phases of loading a file. */
+  public enum Phase {
+    /** Parsing the DOT file into verticies and edges. */
+    PARSE,
+    /** Building the graph's adjacency from the verticies and edges. */
+    INDEX
+  }
+
+  private static final Map<Phase, LatencyHistogram> PHASES = histograms(Phase.class);
+
+  private static final Map<Command, LatencyHistogram> COMMANDS = histograms(Command.class);
+
+  private Statistics() {}
+
+  /**
+   * Records how long a phase of loading a file took.
+   *
+   * @param phase The phase.
+   * @param start When the phase started, from {@link System#nanoTime()}.
+   */
+  static void recordPhase(final Phase phase, final long start) {
+    PHASES.get(phase).record(System.nanoTime() - start);
+  }
+
+  /**
+   * Records how long a command took, including printing its result.
+   *
+   * @param command The command.
+   * @param start When the command started, from {@link System#nanoTime()}.
+   */
+  static void recordCommand(final Command command, final long start) {
+    COMMANDS.get(command).record(System.nanoTime() - start);
+  }
+
+  /**
+   * Returns the latencies of a phase of loading a file.
+   *
+   * @param phase The phase.
+   * @return The latencies.
+   */
+  public static LatencyHistogram getPhase(final Phase phase) {
+    return PHASES.get(phase);
+  }
+
+  /**
+   * Returns the latencies of a command.
+   *
+   * @param command The command.
+   * @return The latencies.
+   */
+  public static LatencyHistogram getCommand(final Command command) {
+    return COMMANDS.get(command);
+  }
+
+  /** Prints the latencies of each phase and command that has run, then the work of each search. */
+  static void print() {
+    MessageCli.STATS_SECTION.printMessage("Load phases");
+    boolean any = false;
+    for (final Map.Entry<Phase, LatencyHistogram> entry : PHASES.entrySet()) {
+      any |= printLatencies(entry.getKey().name(), entry.getValue());
+    }
+    if (!any) {
+      MessageCli.STATS_NONE.printMessage();
+    }
+
+    MessageCli.STATS_SECTION.printMessage("Commands");
+    any = false;
+    for (final Map.Entry<Command, LatencyHistogram> entry : COMMANDS.entrySet()) {
+      any |= printLatencies(entry.getKey().name(), entry.getValue());
+    }
+    if (!any) {
+      MessageCli.STATS_NONE.printMessage();
+    }
+
+    MessageCli.STATS_SECTION.printMessage("Searches");
+    any = false;
+    for (final SearchStats.Search search : SearchStats.Search.values()) {
+      final long runs = SearchStats.getRuns(search);
+      if (runs == 0) {
+        continue;
+      }
+      final long verticies = SearchStats.getVerticiesVisited(search);
+      final long edges = SearchStats.getEdgesScanned(search);
+      MessageCli.STATS_SEARCH.printMessage(
+          search.name(),
+          String.valueOf(runs),
+          String.valueOf(verticies),
+          String.valueOf(edges),
+          String.valueOf(verticies / runs),
+          String.valueOf(edges / runs));
+      any = true;
+    }
+    if (!any) {
+      MessageCli.STATS_NONE.printMessage();
+    }
+  }
+
+  /** Forgets every latency and search recorded so far. */
+  static void reset() {
+    PHASES.values().forEach(LatencyHistogram::reset);
+    COMMANDS.values().forEach(LatencyHistogram::reset);
+    SearchStats.reset();
+  }
+
+  /**
+   * Prints the latencies of a phase or command, if it has run.
+   *
+   * @param name The name of the phase or command.
+   * @param latencies The latencies.
+   * @return If it has run.
+   */
+  private static boolean printLatencies(final String name, final LatencyHistogram latencies) {
+    final long count = latencies.getCount();
+    if (count == 0) {
+      return false;
+    }
+
+    MessageCli.STATS_LATENCY.printMessage(
+        name,
+        String.valueOf(count),
+        LatencyHistogram.format(latencies.getTotalNanos() / count),
+        LatencyHistogram.format(latencies.getPercentileNanos(50)),
+        LatencyHistogram.format(latencies.getPercentileNanos(99)),
+        LatencyHistogram.format(latencies.getMaxNanos()));
+    return true;
+  }
+
+  /**
+   * Creates a histogram for each constant of an enum.
+   *
+   * @param <K> The enum.
+   * @param type The enum's class.
+   * @return The histograms, which are never added to or removed.
+   */
+  private static <K extends Enum<K>> Map<K, LatencyHistogram> histograms(final Class<K> type) {
+    final Map<K, LatencyHistogram> histograms = new EnumMap<>(type);
+    for (final K key : type.getEnumConstants()) {
+      histograms.put(key, new LatencyHistogram());
+    }
+    return Collections.unmodifiableMap(histograms);
+  }
+}
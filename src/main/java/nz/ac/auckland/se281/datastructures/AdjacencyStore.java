@@ -0,0 +1,176 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * The adjacency of a graph, where each vertex is identified by its index in numerical order.
+ *
+ * <p>Neighbours of a vertex are always returned in ascending index order, so traversals that walk
+ * them in order are deterministic regardless of how the store lays them out.
+ *
+ * <p>The property checks run through the kernels {@link #countRelation()} and {@link
+ * #isTransitive()}, which by default walk each vertex's neighbours. A store overrides them when its
+ * layout allows a faster way, so each check runs the kernel suited to the graph's representation.
+ */
+interface AdjacencyStore {
+
+  /**
+   * Returns the representation the store holds the adjacency in.
+   *
+   * @return the representation, which is never {@link Representation#AUTO}.
+   */
+  Representation representation();
+
+  /**
+   * Returns the number of verticies in the store.
+   *
+   * @return the number of verticies.
+   */
+  int vertexCount();
+
+  /**
+   * Returns the number of edges in the store.
+   *
+   * @return the number of edges.
+   */
+  long edgeCount();
+
+  /**
+   * Returns the out-degree of a vertex.
+   *
+   * @param vertex is the index of the vertex.
+   * @return the number of edges leaving the vertex.
+   */
+  int degree(int vertex);
+
+  /**
+   * Returns the neighbours of a vertex in ascending order.
+   *
+   * @param vertex is the index of the vertex.
+   * @return a new array of the neighbour indices.
+   */
+  int[] neighbours(int vertex);
+
+  /**
+   * Determines if there is an edge from the source to the destination.
+   *
+   * @param source is the index of the source vertex.
+   * @param destination is the index of the destination vertex.
+   * @return returns true if the edge exists.
+   */
+  default boolean hasEdge(int source, int destination) {
+    int[] adjacent = neighbours(source);
+    int low = 0;
+    int high = adjacent.length - 1;
+
+    // Binary search the sorted neighbours.
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (adjacent[middle] < destination) {
+        low = middle + 1;
+      } else if (adjacent[middle] > destination) {
+        high = middle - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Determines if the store overrides the kernels, so the property checks should run them rather
+   * than one pass over the neighbours that finds every property together.
+   *
+   * @return returns true if the store has kernels of its own.
+   */
+  default boolean hasKernels() {
+    return false;
+  }
+
+  /**
+   * Counts the self-loops, the edges without their reverse, and the pairs of distinct verticies
+   * joined both ways, taking a step of the thread's budget for each vertex.
+   *
+   * @return the three counts, in that order.
+   */
+  default long[] countRelation() {
+    long[] counts = new long[3];
+    for (int v1 = 0; v1 < vertexCount(); v1++) {
+      Graph.step();
+      for (int v2 : neighbours(v1)) {
+        if (v1 == v2) {
+          counts[0]++;
+        } else if (!hasEdge(v2, v1)) {
+          counts[1]++;
+        } else if (v1 < v2) {
+          // Count each pair joined both ways once.
+          counts[2]++;
+        }
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Determines if the adjacency is transitive, taking a step of the thread's budget for each
+   * vertex and counting the neighbours compared for each edge as work.
+   *
+   * @return true if every vertex reaches everything its neighbours reach.
+   */
+  default boolean isTransitive() {
+    for (int v1 = 0; v1 < vertexCount(); v1++) {
+      Graph.step();
+      int[] fromV1 = neighbours(v1);
+
+      for (int v2 : fromV1) {
+        if (v2 == v1) {
+          continue;
+        }
+        int[] fromV2 = neighbours(v2);
+        Graph.work(fromV2.length + fromV1.length);
+        if (!Graph.isSubset(fromV2, fromV1)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Estimates the heap the store retains.
+   *
+   * @return the estimated bytes, as laid out by {@link Footprint}.
+   */
+  long heapBytes();
+
+  /**
+   * Returns the bytes the store holds outside the heap.
+   *
+   * @return the bytes, or 0 if everything is on the heap.
+   */
+  default long offHeapBytes() {
+    return 0;
+  }
+
+  /**
+   * Collects the edges of a graph into an adjacency store.
+   *
+   * <p>The out-degree of every vertex is known up front, so builders can size their storage exactly
+   * before any edge is added.
+   */
+  interface Builder {
+
+    /**
+     * Adds an edge to the store being built. Edges may be added in any order.
+     *
+     * @param source is the index of the source vertex.
+     * @param destination is the index of the destination vertex.
+     */
+    void addEdge(int source, int destination);
+
+    /**
+     * Finishes building the store, sorting the neighbours of every vertex.
+     *
+     * @return the completed adjacency store.
+     */
+    AdjacencyStore build();
+  }
+}
@@ -0,0 +1,221 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * An in-memory adjacency store holding a bit for every pair of verticies.
+ *
+ * <p>Each vertex has a row of longs, and bit d of the row of vertex s is set if there is an edge
+ * from s to d. Looking an edge up reads one bit, so the store suits small relations whatever their
+ * density, and dense relations of up to tens of thousands of verticies.
+ *
+ * <p>The property checks work on 64 pairs of verticies at a time. Self-loops are read off the
+ * diagonal, an edge's reverse is found by comparing each row word with the matching word of the
+ * transpose, and transitivity holds if the rows of each vertex's neighbours, OR-ed together, are a
+ * subset of its own row.
+ */
+class BitMatrixAdjacency implements AdjacencyStore {
+
+  // Instance field.
+  private final long[] bits;
+  private final int[] degrees;
+  private final int words;
+  private final long edgeCount;
+
+  /**
+   * Creates a store from a filled matrix.
+   *
+   * @param bits is the rows of the matrix back to back.
+   * @param vertexCount is the number of verticies.
+   */
+  private BitMatrixAdjacency(long[] bits, int vertexCount) {
+    this.bits = bits;
+    this.words = (vertexCount + 63) >>> 6;
+    this.degrees = new int[vertexCount];
+
+    long edges = 0;
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      for (int word = vertex * words; word < (vertex + 1) * words; word++) {
+        degrees[vertex] += Long.bitCount(bits[word]);
+      }
+      edges += degrees[vertex];
+    }
+    this.edgeCount = edges;
+  }
+
+  /**
+   * Creates a builder for a store with the given out-degrees.
+   *
+   * @param degrees is the out-degree of each vertex.
+   * @return the builder.
+   */
+  static AdjacencyStore.Builder builder(int[] degrees) {
+    int vertexCount = degrees.length;
+    int words = (vertexCount + 63) >>> 6;
+    long[] bits = new long[Math.multiplyExact(vertexCount, words)];
+
+    return new AdjacencyStore.Builder() {
+      @Override
+      public void addEdge(int source, int destination) {
+        bits[source * words + (destination >>> 6)] |= 1L << destination;
+      }
+
+      @Override
+      public AdjacencyStore build() {
+        return new BitMatrixAdjacency(bits, vertexCount);
+      }
+    };
+  }
+
+  @Override
+  public Representation representation() {
+    return Representation.BIT_MATRIX;
+  }
+
+  @Override
+  public int vertexCount() {
+    return degrees.length;
+  }
+
+  @Override
+  public long edgeCount() {
+    return edgeCount;
+  }
+
+  @Override
+  public int degree(int vertex) {
+    return degrees[vertex];
+  }
+
+  @Override
+  public int[] neighbours(int vertex) {
+    int[] neighbours = new int[degrees[vertex]];
+    int count = 0;
+    for (int word = 0; word < words; word++) {
+      // Take the lowest set bit until none are left.
+      for (long row = bits[vertex * words + word]; row != 0; row &= row - 1) {
+        neighbours[count++] = (word << 6) + Long.numberOfTrailingZeros(row);
+      }
+    }
+    return neighbours;
+  }
+
+  @Override
+  public boolean hasEdge(int source, int destination) {
+    return (bits[source * words + (destination >>> 6)] & (1L << destination)) != 0;
+  }
+
+  @Override
+  public boolean hasKernels() {
+    return true;
+  }
+
+  /**
+   * Counts the self-loops, the edges without their reverse, and the pairs of distinct verticies
+   * joined both ways, comparing the matrix with its transpose one 64 by 64 block at a time.
+   *
+   * @return the three counts, in that order.
+   */
+  @Override
+  public long[] countRelation() {
+    int vertexCount = degrees.length;
+    long selfLoops = 0;
+    long unmatched = 0;
+    long joined = 0;
+    long[] transposed = new long[64];
+
+    for (int rowWord = 0; rowWord < words; rowWord++) {
+      int firstRow = rowWord << 6;
+      int lastRow = Math.min(vertexCount, firstRow + 64);
+      for (int v1 = firstRow; v1 < lastRow; v1++) {
+        Graph.step();
+        if (hasEdge(v1, v1)) {
+          selfLoops++;
+        }
+      }
+
+      for (int word = 0; word < words; word++) {
+        // Bit d of row r of the transposed block is set if there is an edge d -> r.
+        int firstColumn = word << 6;
+        Graph.work(64);
+        for (int r = 0; r < 64; r++) {
+          int v2 = firstColumn + r;
+          transposed[r] = v2 < vertexCount ? bits[v2 * words + rowWord] : 0;
+        }
+        transpose(transposed);
+
+        for (int v1 = firstRow; v1 < lastRow; v1++) {
+          long row = bits[v1 * words + word];
+          long reverse = transposed[v1 - firstRow];
+          unmatched += Long.bitCount(row & ~reverse);
+          joined += Long.bitCount(row & reverse);
+        }
+      }
+    }
+
+    // Self-loops are their own reverse, and other pairs joined both ways are seen from each end.
+    return new long[] {selfLoops, unmatched, (joined - selfLoops) / 2};
+  }
+
+  /**
+   * Determines if the adjacency is transitive, by OR-ing together the rows of each vertex's
+   * neighbours and checking it is a subset of the vertex's own row, 64 verticies at a time.
+   *
+   * @return true if every vertex reaches everything its neighbours reach.
+   */
+  @Override
+  public boolean isTransitive() {
+    long[] reach = new long[words];
+
+    for (int v1 = 0; v1 < degrees.length; v1++) {
+      Graph.step();
+      int start = v1 * words;
+      Arrays.fill(reach, 0);
+
+      for (int word = 0; word < words; word++) {
+        for (long row = bits[start + word]; row != 0; row &= row - 1) {
+          int v2 = (word << 6) + Long.numberOfTrailingZeros(row);
+          if (v2 == v1) {
+            continue;
+          }
+          int neighbourStart = v2 * words;
+          Graph.work(words);
+          for (int i = 0; i < words; i++) {
+            reach[i] |= bits[neighbourStart + i];
+          }
+        }
+      }
+
+      for (int word = 0; word < words; word++) {
+        if ((reach[word] & ~bits[start + word]) != 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public long heapBytes() {
+    return Footprint.object(2 * Footprint.REFERENCE + Integer.BYTES + Long.BYTES)
+        + Footprint.array(bits.length, Long.BYTES)
+        + Footprint.array(degrees.length, Integer.BYTES);
+  }
+
+  /**
+   * Transposes a 64 by 64 block of bits in place, by swapping ever smaller quadrants of it.
+   *
+   * @param block is the rows of the block, where bit c of row r becomes bit r of row c.
+   */
+  static void transpose(long[] block) {
+    long mask = 0x00000000FFFFFFFFL;
+    for (int width = 32; width != 0; width >>>= 1, mask ^= mask << width) {
+      // Swap the high columns of each upper row with the low columns of the row width below it.
+      for (int r = 0; r < 64; r = ((r | width) + 1) & ~width) {
+        long swapped = ((block[r] >>> width) ^ block[r | width]) & mask;
+        block[r] ^= swapped << width;
+        block[r | width] ^= swapped;
+      }
+    }
+  }
+}
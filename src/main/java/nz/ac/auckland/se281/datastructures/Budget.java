@@ -0,0 +1,131 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * A limit on the time and steps that one command may spend in a {@link Graph}'s checks and
+ * searches. A step is visiting one vertex in any pass the command makes, including passes it needs
+ * first, such as finding the roots before a search. Checks whose work per vertex grows with its
+ * degree, such as comparing neighbour lists for transitivity, also count their units of work, such
+ * as the neighbours compared, so the clock is still read often on dense graphs.
+ *
+ * <p>A budget applies to the thread that {@link #run(Runnable) runs} a command under it. When it is
+ * spent, the check or search throws a {@link BudgetExceededException}, and searches attach the
+ * verticies they had found so far.
+ */
+public class Budget {
+
+  /** A budget with no limits. */
+  public static final Budget UNLIMITED = new Budget(0, 0);
+
+  /** How many steps are taken between reading the clock. */
+  private static final int STEPS_PER_CLOCK_CHECK = 256;
+
+  /** How many units of work are done between reading the clock. */
+  private static final long WORK_PER_CLOCK_CHECK = 1 << 16;
+
+  private static final ThreadLocal<Meter> CURRENT = new ThreadLocal<>();
+
+  // Instance field.
+  private final long millis;
+  private final long steps;
+
+  /** What is left of a budget on the thread that is running under it. */
+  private static class Meter {
+    private final Budget budget;
+    private final long deadline;
+    private long steps;
+    private long work;
+
+    private Meter(Budget budget) {
+      this.budget = budget;
+      this.deadline =
+          budget.millis > 0 ? System.nanoTime() + budget.millis * 1_000_000 : Long.MAX_VALUE;
+    }
+  }
+
+  /**
+   * Creates a budget.
+   *
+   * @param millis is the time limit in milliseconds, or 0 for no limit.
+   * @param steps is the limit on verticies visited, or 0 for no limit.
+   * @throws IllegalArgumentException if either limit is negative.
+   */
+  public Budget(long millis, long steps) {
+    if (millis < 0 || steps < 0) {
+      throw new IllegalArgumentException("A budget cannot be negative");
+    }
+    this.millis = millis;
+    this.steps = steps;
+  }
+
+  /**
+   * Runs a command under this budget on the current thread.
+   *
+   * @param command is the command to run.
+   * @throws BudgetExceededException if the command spends the budget.
+   */
+  public void run(Runnable command) {
+    Meter previous = CURRENT.get();
+    CURRENT.set(this == UNLIMITED ? null : new Meter(this));
+    try {
+      command.run();
+    } finally {
+      CURRENT.set(previous);
+    }
+  }
+
+  /**
+   * Takes one step of the budget the current thread is running under, if it has one.
+   *
+   * @throws BudgetExceededException if the budget is spent.
+   */
+  static void step() {
+    Meter meter = CURRENT.get();
+    if (meter == null) {
+      return;
+    }
+
+    meter.steps++;
+    Budget budget = meter.budget;
+    if (budget.steps > 0 && meter.steps > budget.steps) {
+      throw new BudgetExceededException("step budget of " + budget.steps + " verticies");
+    }
+    // Reading the clock costs more than a step, so only read it every so often.
+    if (meter.steps % STEPS_PER_CLOCK_CHECK == 0 && System.nanoTime() > meter.deadline) {
+      throw new BudgetExceededException("time budget of " + budget.millis + " ms");
+    }
+  }
+
+  /**
+   * Counts units of work done within a step of the budget the current thread is running under, if
+   * it has one. Work does not spend the step limit, but reads the clock as often as a fixed amount
+   * of it is done, however few verticies that takes.
+   *
+   * @param units is the amount of work done, such as the number of neighbours compared.
+   * @throws BudgetExceededException if the time budget is spent.
+   */
+  static void work(long units) {
+    Meter meter = CURRENT.get();
+    if (meter == null) {
+      return;
+    }
+
+    long before = meter.work;
+    meter.work += units;
+    if (before / WORK_PER_CLOCK_CHECK != meter.work / WORK_PER_CLOCK_CHECK
+        && System.nanoTime() > meter.deadline) {
+      throw new BudgetExceededException("time budget of " + meter.budget.millis + " ms");
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (millis == 0 && steps == 0) {
+      return "no limit";
+    } else if (steps == 0) {
+      return millis + " ms";
+    } else if (millis == 0) {
+      return steps + " verticies";
+    }
+    return millis + " ms and " + steps + " verticies";
+  }
+}
@@ -0,0 +1,41 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.List;
+
+/** Thrown when a check or search spends the {@link Budget} it is running under. */
+public class BudgetExceededException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  // Instance field.
+  private transient List<?> partialResult;
+
+  /**
+   * Creates the exception.
+   *
+   * @param budget describes the limit that was reached.
+   */
+  BudgetExceededException(String budget) {
+    super(budget);
+  }
+
+  /**
+   * Returns the verticies a search had found when the budget ran out, in search order.
+   *
+   * @return returns the partial search order, or null if the command was not a search.
+   */
+  public List<?> getPartialResult() {
+    return partialResult;
+  }
+
+  /**
+   * Attaches the verticies a search had found when the budget ran out.
+   *
+   * @param partialResult is the partial search order.
+   * @return returns this exception.
+   */
+  BudgetExceededException withPartialResult(List<?> partialResult) {
+    this.partialResult = partialResult;
+    return this;
+  }
+}
@@ -0,0 +1,206 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * An in-memory adjacency store that keeps each vertex's neighbours as gap encoded bytes.
+ *
+ * <p>Neighbours are sorted, so each one is stored as its difference from the previous neighbour
+ * (the first as is), and each difference is written as a varint of seven bits per byte with the
+ * high bit marking that another byte follows. Clustered numeric ids then take one or two bytes per
+ * edge instead of four. As in compressed sparse row form, the bytes of every vertex are stored back
+ * to back in one array, and the offsets array marks where each vertex's bytes begin, so a vertex
+ * costs one int beyond its neighbours. Its degree is the number of bytes that end a varint.
+ */
+class CompressedAdjacency implements AdjacencyStore {
+
+  // Instance field.
+  private final int[] offsets;
+  private final byte[] bytes;
+  private final long edgeCount;
+
+  private CompressedAdjacency(int[] offsets, byte[] bytes, long edgeCount) {
+    this.offsets = offsets;
+    this.bytes = bytes;
+    this.edgeCount = edgeCount;
+  }
+
+  /**
+   * Creates a builder for a store with the given out-degrees.
+   *
+   * <p>Each vertex's neighbours are collected uncompressed in a row of exactly its degree, and the
+   * row is encoded and released as soon as its last neighbour arrives. Only the rows still being
+   * filled are held uncompressed, so when edges arrive grouped by source, as they are read from a
+   * test case, the load never holds the whole graph uncompressed. Rows encoded in vertex order are
+   * appended to the bytes straight away, and others are held until the rows before them are.
+   *
+   * @param degrees is the out-degree of each vertex.
+   * @return the builder.
+   */
+  static AdjacencyStore.Builder builder(int[] degrees) {
+    final int[][] pending = new int[degrees.length][];
+    final byte[][] encoded = new byte[degrees.length][];
+    final int[] filled = new int[degrees.length];
+    final int[] offsets = new int[degrees.length + 1];
+
+    return new AdjacencyStore.Builder() {
+      private byte[] bytes = new byte[16];
+      private int appended;
+
+      @Override
+      public void addEdge(int source, int destination) {
+        if (pending[source] == null) {
+          pending[source] = new int[degrees[source]];
+        }
+        pending[source][filled[source]++] = destination;
+
+        if (filled[source] == degrees[source]) {
+          Arrays.sort(pending[source]);
+          encoded[source] = encode(pending[source]);
+          pending[source] = null;
+          appendEncoded();
+        }
+      }
+
+      @Override
+      public AdjacencyStore build() {
+        for (int i = appended; i < degrees.length; i++) {
+          if (encoded[i] == null && filled[i] < degrees[i]) {
+            // A vertex given fewer edges than its degree.
+            int[] row = pending[i] == null ? new int[0] : Arrays.copyOf(pending[i], filled[i]);
+            Arrays.sort(row);
+            encoded[i] = encode(row);
+            pending[i] = null;
+          }
+        }
+        appendEncoded();
+
+        long edgeCount = 0;
+        for (int i = 0; i < degrees.length; i++) {
+          edgeCount += filled[i];
+        }
+        byte[] trimmed = Arrays.copyOf(bytes, offsets[degrees.length]);
+        return new CompressedAdjacency(offsets, trimmed, edgeCount);
+      }
+
+      /** Appends the encoded rows that follow the ones already appended. */
+      private void appendEncoded() {
+        while (appended < degrees.length
+            && (encoded[appended] != null || degrees[appended] == 0)) {
+          byte[] row = encoded[appended] != null ? encoded[appended] : new byte[0];
+          int start = offsets[appended];
+          if (start + row.length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(start + row.length, 2 * bytes.length));
+          }
+          System.arraycopy(row, 0, bytes, start, row.length);
+          encoded[appended] = null;
+          offsets[++appended] = start + row.length;
+        }
+      }
+    };
+  }
+
+  @Override
+  public Representation representation() {
+    return Representation.COMPRESSED;
+  }
+
+  @Override
+  public int vertexCount() {
+    return offsets.length - 1;
+  }
+
+  @Override
+  public long edgeCount() {
+    return edgeCount;
+  }
+
+  @Override
+  public int degree(int vertex) {
+    int degree = 0;
+    for (int position = offsets[vertex]; position < offsets[vertex + 1]; position++) {
+      if (bytes[position] >= 0) {
+        degree++;
+      }
+    }
+    return degree;
+  }
+
+  @Override
+  public int[] neighbours(int vertex) {
+    int[] neighbours = new int[degree(vertex)];
+    int position = offsets[vertex];
+    int previous = 0;
+
+    for (int i = 0; i < neighbours.length; i++) {
+      // Read one varint, seven bits at a time.
+      int gap = 0;
+      int shift = 0;
+      byte current;
+      do {
+        current = bytes[position++];
+        gap |= (current & 0x7F) << shift;
+        shift += 7;
+      } while (current < 0);
+
+      previous += gap;
+      neighbours[i] = previous;
+    }
+    return neighbours;
+  }
+
+  @Override
+  public boolean hasEdge(int source, int destination) {
+    int position = offsets[source];
+    int previous = 0;
+
+    // Decode only as far as the destination, since neighbours are ascending.
+    while (position < offsets[source + 1]) {
+      int gap = 0;
+      int shift = 0;
+      byte current;
+      do {
+        current = bytes[position++];
+        gap |= (current & 0x7F) << shift;
+        shift += 7;
+      } while (current < 0);
+
+      previous += gap;
+      if (previous >= destination) {
+        return previous == destination;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gap encodes sorted neighbours as varints.
+   *
+   * @param neighbours is the sorted neighbours of a vertex.
+   * @return the encoded bytes.
+   */
+  private static byte[] encode(int[] neighbours) {
+    // A non-negative int never needs more than five varint bytes.
+    byte[] buffer = new byte[neighbours.length * 5];
+    int position = 0;
+    int previous = 0;
+
+    for (int neighbour : neighbours) {
+      int gap = neighbour - previous;
+      previous = neighbour;
+      while ((gap & ~0x7F) != 0) {
+        buffer[position++] = (byte) ((gap & 0x7F) | 0x80);
+        gap >>>= 7;
+      }
+      buffer[position++] = (byte) gap;
+    }
+    return Arrays.copyOf(buffer, position);
+  }
+
+  @Override
+  public long heapBytes() {
+    return Footprint.object(2 * Footprint.REFERENCE + Long.BYTES)
+        + Footprint.array(offsets.length, Integer.BYTES)
+        + Footprint.array(bytes.length, Byte.BYTES);
+  }
+}
@@ -0,0 +1,94 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * An in-memory adjacency store in compressed sparse row form.
+ *
+ * <p>The neighbours of every vertex are stored back to back in one array, and the offsets array
+ * marks where each vertex's neighbours begin.
+ */
+class CsrAdjacency implements AdjacencyStore {
+
+  // Instance field.
+  final int[] offsets;
+  final int[] targets;
+
+  /**
+   * Creates a store from already sorted offsets and targets.
+   *
+   * @param offsets is the start of each vertex's neighbours, with one extra trailing entry.
+   * @param targets is the neighbours of every vertex.
+   */
+  CsrAdjacency(int[] offsets, int[] targets) {
+    this.offsets = offsets;
+    this.targets = targets;
+  }
+
+  /**
+   * Creates a builder for a store with the given out-degrees.
+   *
+   * @param degrees is the out-degree of each vertex.
+   * @return the builder.
+   */
+  static AdjacencyStore.Builder builder(int[] degrees) {
+    int[] offsets = new int[degrees.length + 1];
+    for (int i = 0; i < degrees.length; i++) {
+      offsets[i + 1] = offsets[i] + degrees[i];
+    }
+    int[] targets = new int[offsets[degrees.length]];
+    int[] next = Arrays.copyOf(offsets, degrees.length);
+
+    return new AdjacencyStore.Builder() {
+      @Override
+      public void addEdge(int source, int destination) {
+        targets[next[source]++] = destination;
+      }
+
+      @Override
+      public AdjacencyStore build() {
+        for (int i = 0; i < degrees.length; i++) {
+          Arrays.sort(targets, offsets[i], offsets[i + 1]);
+        }
+        return new CsrAdjacency(offsets, targets);
+      }
+    };
+  }
+
+  @Override
+  public Representation representation() {
+    return Representation.CSR;
+  }
+
+  @Override
+  public int vertexCount() {
+    return offsets.length - 1;
+  }
+
+  @Override
+  public long edgeCount() {
+    return targets.length;
+  }
+
+  @Override
+  public int degree(int vertex) {
+    return offsets[vertex + 1] - offsets[vertex];
+  }
+
+  @Override
+  public int[] neighbours(int vertex) {
+    return Arrays.copyOfRange(targets, offsets[vertex], offsets[vertex + 1]);
+  }
+
+  @Override
+  public boolean hasEdge(int source, int destination) {
+    return Arrays.binarySearch(targets, offsets[source], offsets[source + 1], destination) >= 0;
+  }
+
+  @Override
+  public long heapBytes() {
+    return Footprint.object(2 * Footprint.REFERENCE)
+        + Footprint.array(offsets.length, Integer.BYTES)
+        + Footprint.array(targets.length, Integer.BYTES);
+  }
+}
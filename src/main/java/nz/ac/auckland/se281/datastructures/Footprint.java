@@ -0,0 +1,201 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An estimate of the heap a graph retains, broken down by the structures that hold it.
+ *
+ * <p>Sizes follow the layout of a 64-bit HotSpot JVM with compressed references: objects have a
+ * 12 byte header, arrays a 16 byte header, references take 4 bytes, and everything is padded to a
+ * multiple of 8 bytes. The estimate walks the structures rather than measuring the heap, so it is
+ * the same on every run, but storage that copies of a graph share is counted for each copy.
+ */
+public final class Footprint {
+
+  /** The bytes of a reference to an object. */
+  static final int REFERENCE = 4;
+
+  /** The bytes of a hash map's entry: its hash, key, value and next entry. */
+  private static final long HASH_MAP_NODE = object(16);
+
+  /** The bytes of a linked hash map's entry, which also links the entries before and after it. */
+  private static final long LINKED_HASH_MAP_ENTRY = object(24);
+
+  private final Map<String, Long> structures = new LinkedHashMap<>();
+
+  private final long edges;
+
+  private long offHeapBytes;
+
+  /**
+   * Creates an empty estimate for a graph.
+   *
+   * @param edges is the number of edges in the graph.
+   */
+  Footprint(long edges) {
+    this.edges = edges;
+  }
+
+  /**
+   * Adds the bytes retained by a structure.
+   *
+   * @param structure is the name of the structure.
+   * @param bytes is the estimated bytes.
+   */
+  void add(String structure, long bytes) {
+    structures.merge(structure, bytes, Long::sum);
+  }
+
+  /**
+   * Adds bytes held outside the heap, such as memory-mapped files.
+   *
+   * @param bytes is the bytes.
+   */
+  void addOffHeap(long bytes) {
+    offHeapBytes += bytes;
+  }
+
+  /**
+   * Returns the estimated bytes retained by each structure.
+   *
+   * @return returns each structure's bytes, in the order they were added.
+   */
+  public Map<String, Long> getStructures() {
+    return Collections.unmodifiableMap(structures);
+  }
+
+  /**
+   * Returns the estimated bytes retained on the heap.
+   *
+   * @return returns the sum of every structure's bytes.
+   */
+  public long getTotalBytes() {
+    long total = 0;
+    for (long bytes : structures.values()) {
+      total += bytes;
+    }
+    return total;
+  }
+
+  /**
+   * Returns the bytes held outside the heap, which are not part of the total.
+   *
+   * @return returns the bytes of memory-mapped files.
+   */
+  public long getOffHeapBytes() {
+    return offHeapBytes;
+  }
+
+  /**
+   * Returns the estimated heap retained for each edge of the graph.
+   *
+   * @return returns the total bytes over the number of edges, or the total if there are none.
+   */
+  public double getBytesPerEdge() {
+    return (double) getTotalBytes() / Math.max(1, edges);
+  }
+
+  /**
+   * Estimates the bytes of an object.
+   *
+   * @param fieldBytes is the sum of the widths of its fields.
+   * @return returns the bytes, with the header and padding.
+   */
+  static long object(long fieldBytes) {
+    return align(12 + fieldBytes);
+  }
+
+  /**
+   * Estimates the bytes of an array.
+   *
+   * @param length is the number of elements.
+   * @param elementBytes is the width of each element.
+   * @return returns the bytes, with the header and padding.
+   */
+  static long array(long length, int elementBytes) {
+    return align(16 + length * elementBytes);
+  }
+
+  /**
+   * Estimates the bytes of a hash map filled by adding its entries one at a time.
+   *
+   * @param size is the number of entries.
+   * @return returns the bytes of the map, its table and its entries, but not its keys and values.
+   */
+  static long hashMap(int size) {
+    return object(32) + array(tableLength(size), REFERENCE) + size * HASH_MAP_NODE;
+  }
+
+  /**
+   * Estimates the bytes of a linked hash set, such as the ones a test case is read into.
+   *
+   * @param size is the number of elements.
+   * @return returns the bytes of the set, its map, its table and its entries, but not its elements.
+   */
+  public static long linkedHashSet(int size) {
+    return object(REFERENCE)
+        + object(44)
+        + array(tableLength(size), REFERENCE)
+        + size * LINKED_HASH_MAP_ENTRY;
+  }
+
+  /**
+   * Estimates the bytes of an edge, without its verticies.
+   *
+   * @return returns the bytes of the edge object.
+   */
+  public static long edge() {
+    return object(2 * REFERENCE);
+  }
+
+  /**
+   * Estimates the bytes of a vertex. Strings and boxed numbers are sized from their contents, and
+   * any other object is counted as an object without fields.
+   *
+   * @param value is the vertex.
+   * @return returns the bytes of the vertex and anything only it refers to.
+   */
+  public static long value(Object value) {
+    if (value instanceof String) {
+      String string = (String) value;
+      boolean latin1 = string.chars().allMatch(c -> c < 256);
+      // The value array, the cached hash, the coder and whether the hash is zero.
+      return object(REFERENCE + 4 + 1 + 1) + array(string.length(), latin1 ? 1 : 2);
+    } else if (value instanceof Long || value instanceof Double) {
+      return object(8);
+    } else if (value instanceof Integer || value instanceof Float) {
+      return object(4);
+    }
+    return object(0);
+  }
+
+  /**
+   * Returns the table length a hash map grows to as its entries are added.
+   *
+   * @param size is the number of entries.
+   * @return returns the smallest power of two from 16 that holds them under a load factor of 0.75,
+   *     or 0 if there are none, as the table is only created for the first entry.
+   */
+  private static long tableLength(int size) {
+    if (size == 0) {
+      return 0;
+    }
+    long length = 16;
+    while (size > length * 3 / 4) {
+      length *= 2;
+    }
+    return length;
+  }
+
+  /**
+   * Pads a size to a multiple of 8 bytes.
+   *
+   * @param bytes is the size.
+   * @return returns the padded size.
+   */
+  private static long align(long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+}
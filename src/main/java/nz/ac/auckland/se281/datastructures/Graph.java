@@ -1,6 +1,8 @@
 package nz.ac.auckland.se281.datastructures;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -8,7 +10,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
-import nz.ac.auckland.se281.datastructures.stackandqueue.LinkedList;
+import java.util.concurrent.CancellationException;
 import nz.ac.auckland.se281.datastructures.stackandqueue.Queue;
 import nz.ac.auckland.se281.datastructures.stackandqueue.Stack;
 
@@ -17,14 +19,64 @@ import nz.ac.auckland.se281.datastructures.stackandqueue.Stack;
  *
  * <p>You must NOT change the signature of the existing methods or constructor of this class.
  *
+ * <p>Verticies are numbered by their position in numerical order, and every search and property
+ * check runs over those indices through an {@link AdjacencyStore}, so the adjacency can live
+ * wherever its {@link Representation} puts it.
+ *
+ * <p>The iteration order of the given verticies and edges is remembered, so an ordered set such as
+ * {@link java.util.LinkedHashSet} can be listed back in the order it was read without keeping the
+ * original objects. Verticies are remembered by index, and edges by their position in the sorted
+ * adjacency they were built into, one int each, or not at all when they were given in sorted
+ * order. Edges added later are remembered by their verticies and listed after them. A graph held
+ * as {@link Representation#MAPPED} lists its edges in sorted order, as remembering their order
+ * would hold an int on the heap for each edge.
+ *
+ * <p>Reflexivity, symmetry and anti-symmetry are answered from counters of self-loops, edges
+ * without a reverse, and pairs of verticies joined both ways. The counters are taken in one pass
+ * the first time they are needed, then adjusted on each edit.
+ *
+ * <p>Transitivity of an edited graph is answered from a count of paths u -&gt; v -&gt; w that lack
+ * the edge u -&gt; w. It is counted the first time transitivity is checked, and from then on each
+ * edit adjusts it by looking only at the neighbours of the edited edge's verticies, using an index
+ * of each vertex's incoming edges.
+ *
+ * <p>A graph can be {@link #freeze() frozen}, after which it cannot be edited and can be read from
+ * several threads at once. A {@link #copy()} of a graph shares its storage and copies only the
+ * parts that are edited, so {@link VersionedGraph} can publish each edit as a new frozen graph.
+ *
+ * <p>Checks and searches stop with a {@link CancellationException} when the thread running them
+ * is interrupted, and with a {@link BudgetExceededException} when it spends its {@link Budget},
+ * checking once per vertex and, in checks that compare neighbour lists, once per neighbour
+ * compared. Searches that run out of budget attach the verticies found so far.
+ *
  * @param <T> The type of each vertex, that have a total ordering.
  */
 public class Graph<T extends Comparable<T>> {
 
+  private static final long[] NO_EDGES = new long[0];
+
   // Instance field.
-  private Set<T> vertices;
-  private Set<Edge<T>> edges;
-  private HashMap<T, LinkedList<Edge<T>>> adjacencyMap;
+  private List<T> vertices;
+  private HashMap<T, Integer> indices;
+  private AdjacencyStore adjacency;
+  private int[] vertexOrder;
+  private AdjacencyStore orderedAdjacency;
+  private int[] orderedIndices;
+  private int[] edgeOrder;
+  private long[] addedEdges = NO_EDGES;
+  private int addedEdgeCount;
+  private boolean addedEdgesStale;
+  private boolean addedEdgesShared;
+  private long contentHash;
+  private boolean countersValid;
+  private int selfLoops;
+  private long unmatchedEdges;
+  private long reversedPairs;
+  private boolean edited;
+  private boolean batching;
+  private volatile ListAdjacency reverse;
+  private long transitiveViolations;
+  private boolean frozen;
 
   /**
    * Creates a graph with the given verticies and edges.
@@ -33,10 +85,57 @@ public class Graph<T extends Comparable<T>> {
    * @param edges is the edges of the graph.
    */
   public Graph(Set<T> verticies, Set<Edge<T>> edges) {
-    this.adjacencyMap = new HashMap<T, LinkedList<Edge<T>>>();
-    this.vertices = verticies;
-    this.edges = edges;
-    createAdjacencyMap(verticies, edges);
+    this(verticies, edges, Representation.AUTO);
+  }
+
+  /**
+   * Creates a graph with the given verticies and edges, holding the adjacency in the given
+   * representation.
+   *
+   * @param verticies is the vertices of the graph.
+   * @param edges is the edges of the graph.
+   * @param representation is where and how the adjacency is stored.
+   */
+  public Graph(Set<T> verticies, Set<Edge<T>> edges, Representation representation) {
+    this.vertices = new ArrayList<>(verticies);
+    this.indices = new HashMap<>();
+    createAdjacency(edges, representation);
+  }
+
+  /**
+   * Creates an editable copy of a graph that shares its storage. Copying a frozen graph never
+   * writes to it, as it already gave up its editable storage when it was frozen.
+   *
+   * @param graph is the graph to copy.
+   */
+  private Graph(Graph<T> graph) {
+    this.vertices = graph.vertices;
+    this.indices = graph.indices;
+    this.adjacency =
+        graph.adjacency instanceof ListAdjacency
+            ? share((ListAdjacency) graph.adjacency, graph.frozen)
+            : graph.adjacency;
+    this.vertexOrder = graph.vertexOrder;
+    // An adjacency that is edited in place is only kept as it was once either side edits it.
+    this.orderedAdjacency =
+        graph.orderedAdjacency == graph.adjacency ? this.adjacency : graph.orderedAdjacency;
+    this.orderedIndices = graph.orderedIndices;
+    this.edgeOrder = graph.edgeOrder;
+    // A frozen graph never edits its added edges, so only an editable one's are copied.
+    this.addedEdges =
+        graph.frozen ? graph.addedEdges : Arrays.copyOf(graph.addedEdges, graph.addedEdgeCount);
+    this.addedEdgeCount = graph.addedEdgeCount;
+    this.addedEdgesStale = graph.addedEdgesStale;
+    this.addedEdgesShared = graph.frozen;
+    this.contentHash = graph.contentHash;
+    this.countersValid = graph.countersValid;
+    this.selfLoops = graph.selfLoops;
+    this.unmatchedEdges = graph.unmatchedEdges;
+    this.reversedPairs = graph.reversedPairs;
+    this.edited = graph.edited;
+    ListAdjacency reversed = graph.reverse;
+    this.reverse = reversed != null ? share(reversed, graph.frozen) : null;
+    this.transitiveViolations = graph.transitiveViolations;
   }
 
   /**
@@ -47,21 +146,29 @@ public class Graph<T extends Comparable<T>> {
   public Set<T> getRoots() {
 
     Set<T> roots = new TreeSet<T>(getComparator());
+    int[] inDegrees = getInDegrees();
 
     // Determine if the vertex has InDegree of 0,
     // If it does then it is a root.
-    for (T vertex : vertices) {
-      if (isInDegreeZero(vertex) && isOutDegreeOne(vertex)) {
-        roots.add(vertex);
+    for (int i = 0; i < vertices.size(); i++) {
+      step();
+      if (inDegrees[i] == 0 && adjacency.degree(i) > 0) {
+        roots.add(vertices.get(i));
       }
     }
     // If the graph is an equvalence relation,
     // Determine the lowest vertex in the equvalence relation.
     if (isEquivalence()) {
-      for (T vertex : vertices) {
-        List<T> vertexList = new ArrayList<>();
-        vertexList.addAll(getEquivalenceClass(vertex));
-        roots.add(Collections.min(vertexList));
+      for (int i = 0; i < vertices.size(); i++) {
+        step();
+        T lowest = null;
+        for (int neighbour : adjacency.neighbours(i)) {
+          T vertex = vertices.get(neighbour);
+          if (lowest == null || vertex.compareTo(lowest) < 0) {
+            lowest = vertex;
+          }
+        }
+        roots.add(lowest);
       }
     }
     return roots;
@@ -73,17 +180,9 @@ public class Graph<T extends Comparable<T>> {
    * @return returns true if the graph is reflexive.
    */
   public boolean isReflexive() {
-    int count = 0;
-
-    // Loop through all edges and determine amount of edges that are reflexive.
-    for (Edge<T> edge : edges) {
-      if (edge.getSource().equals(edge.getDestination())) {
-        count++;
-      }
-    }
-    // Return true only if the number of reflexive edges is
-    // equivalent to the number of vertices in the graph.
-    return count == this.vertices.size();
+    // Every vertex must have an edge to itself.
+    updateCounters();
+    return selfLoops == vertices.size();
   }
 
   /**
@@ -92,19 +191,9 @@ public class Graph<T extends Comparable<T>> {
    * @return returns true if the graph is symmetric.
    */
   public boolean isSymmetric() {
-
-    Edge<T> temp;
-
-    for (Edge<T> edge : edges) {
-      T v1 = edge.getSource();
-      T v2 = edge.getDestination();
-      // Create temporary edge with the source and destination fliped
-      temp = new Edge<>(v2, v1);
-      if (!(edges.contains(temp))) {
-        return false;
-      }
-    }
-    return true;
+    // Every edge must have the edge with the source and destination fliped.
+    updateCounters();
+    return unmatchedEdges == 0;
   }
 
   /**
@@ -113,25 +202,13 @@ public class Graph<T extends Comparable<T>> {
    * @return returns true if the graph is transitive.
    */
   public boolean isTransitive() {
-    for (Edge<T> edge : edges) {
-      // Create temporary edge with the source and destination fliped.
-      T v1 = edge.getSource();
-      T v2 = edge.getDestination();
-
-      for (Edge<T> edgeFromV2 : edges) {
-
-        if (edgeFromV2.getSource().equals(v2)) {
-          T v3 = edgeFromV2.getDestination();
-          Edge<T> temp = new Edge<>(v1, v3);
-          // if the graph does not contain an edge from v2 to v3,
-          // then the graph is not transitive.
-          if (!edges.contains(temp)) {
-            return false;
-          }
-        }
-      }
+    if (edited) {
+      updateTransitiveViolations();
+      return transitiveViolations == 0;
     }
-    return true;
+
+    // If any vertex does not reach everything its neighbours reach, it is not transitive.
+    return adjacency.isTransitive();
   }
 
   /**
@@ -140,24 +217,10 @@ public class Graph<T extends Comparable<T>> {
    * @return returns true if the graph is anti-symmetric.
    */
   public boolean isAntiSymmetric() {
-
-    // Loop through the set of edges,
-    for (Edge<T> edge : edges) {
-      // get the source and destination of the edge.
-      T v1 = edge.getSource();
-      T v2 = edge.getDestination();
-      // if the source and destination are not equal,
-      if (!v1.equals(v2)) {
-        // create temporary edge with the source and destination fliped.
-        Edge<T> reversedEdge = new Edge<>(v2, v1);
-        // If the graph contains the reversed edge,
-        // then the graph is not anti-symmetric.
-        if (edges.contains(reversedEdge)) {
-          return false;
-        }
-      }
-    }
-    return true;
+    // If the graph contains the reversed edge between distinct verticies,
+    // then the graph is not anti-symmetric.
+    updateCounters();
+    return reversedPairs == 0;
   }
 
   /**
@@ -169,6 +232,122 @@ public class Graph<T extends Comparable<T>> {
     return isReflexive() && isSymmetric() && isTransitive();
   }
 
+  /**
+   * Determines every property of the graph as a relation in one pass over the edges, rather than
+   * a pass for each property as when they are checked one by one.
+   *
+   * <p>Counters that are already up to date are not counted again, and an edited graph's
+   * transitivity is answered from its count of paths missing their edge if it has one, so the pass
+   * stops as soon as it has nothing left to find.
+   *
+   * @return returns the properties of the graph.
+   */
+  public RelationProperties getRelationProperties() {
+    if (adjacency.hasKernels()) {
+      updateCounters();
+      return new RelationProperties(
+          selfLoops == vertices.size(), unmatchedEdges == 0, reversedPairs == 0, isTransitive());
+    }
+
+    boolean counting = !countersValid;
+    boolean scanning = !(edited && reverse != null);
+    boolean transitive = scanning || transitiveViolations == 0;
+
+    if (counting) {
+      selfLoops = 0;
+      unmatchedEdges = 0;
+      reversedPairs = 0;
+    }
+    for (int v1 = 0; v1 < vertices.size() && (counting || (scanning && transitive)); v1++) {
+      step();
+      int[] fromV1 = adjacency.neighbours(v1);
+
+      if (counting) {
+        countOutgoing(v1, fromV1);
+      }
+      for (int i = 0; scanning && transitive && i < fromV1.length; i++) {
+        int v2 = fromV1[i];
+        int[] fromV2 = adjacency.neighbours(v2);
+        work(fromV2.length + fromV1.length);
+        transitive = v2 == v1 || isSubset(fromV2, fromV1);
+      }
+    }
+    // A frozen graph's counters are always up to date, so it is never written to here.
+    if (counting) {
+      countersValid = true;
+    }
+
+    return new RelationProperties(
+        selfLoops == vertices.size(), unmatchedEdges == 0, reversedPairs == 0, transitive);
+  }
+
+  /**
+   * Profiles the graph as a relation in one pass over the edges, finding every property together
+   * with its counts and the first counterexample to each property the graph does not have.
+   *
+   * <p>Unlike {@link #getRelationProperties()}, the pass always visits every edge, so the counts
+   * are exact, but it stops checking paths for transitivity once it has found one missing its
+   * edge. The graph is only read, so this is safe on a frozen graph.
+   *
+   * @return returns the profile of the graph.
+   */
+  public RelationProfile<T> getRelationProfile() {
+    int loops = 0;
+    long unmatched = 0;
+    long reversed = 0;
+    T missingSelfLoop = null;
+    Edge<T> missingReverse = null;
+    Edge<T> reversedPair = null;
+    List<T> missingShortcut = null;
+
+    for (int v1 = 0; v1 < vertices.size(); v1++) {
+      step();
+      int[] fromV1 = adjacency.neighbours(v1);
+
+      if (missingSelfLoop == null && Arrays.binarySearch(fromV1, v1) < 0) {
+        missingSelfLoop = vertices.get(v1);
+      }
+      for (int v2 : fromV1) {
+        if (v1 == v2) {
+          loops++;
+          continue;
+        }
+
+        if (!adjacency.hasEdge(v2, v1)) {
+          unmatched++;
+          if (missingReverse == null) {
+            missingReverse = new Edge<>(vertices.get(v1), vertices.get(v2));
+          }
+        } else if (v1 < v2) {
+          reversed++;
+          if (reversedPair == null) {
+            reversedPair = new Edge<>(vertices.get(v1), vertices.get(v2));
+          }
+        }
+
+        if (missingShortcut == null) {
+          int[] fromV2 = adjacency.neighbours(v2);
+          work(fromV2.length + fromV1.length);
+          int v3 = firstMissing(fromV2, fromV1);
+          if (v3 >= 0) {
+            missingShortcut = List.of(vertices.get(v1), vertices.get(v2), vertices.get(v3));
+          }
+        }
+      }
+    }
+
+    return new RelationProfile<>(
+        vertices.size(),
+        getEdgeCount(),
+        loops,
+        unmatched,
+        reversed,
+        missingSelfLoop,
+        missingReverse,
+        reversedPair,
+        missingShortcut);
+  }
+
   /**
    * Method to return the equivalence class of a vertex.
    *
@@ -179,14 +358,14 @@ public class Graph<T extends Comparable<T>> {
 
     // Initialise varaibles
     Set<T> equivalenceClass = new HashSet<>();
-    LinkedList<Edge<T>> adjacent = this.adjacencyMap.get(vertex);
+    Integer index = this.indices.get(vertex);
 
-    if (!isEquivalence()) {
+    if (index == null || !isEquivalence()) {
       return equivalenceClass;
     }
 
-    for (int i = 0; i < adjacent.size(); i++) {
-      equivalenceClass.add(adjacent.get(i).getDestination());
+    for (int neighbour : adjacency.neighbours(index)) {
+      equivalenceClass.add(vertices.get(neighbour));
     }
     return equivalenceClass;
   }
@@ -198,31 +377,38 @@ public class Graph<T extends Comparable<T>> {
    */
   public List<T> iterativeBreadthFirstSearch() {
 
-    Queue<T> found = new Queue<>();
-    Set<T> visited = new HashSet<>();
+    Queue<Integer> found = new Queue<>();
+    boolean[] visited = new boolean[vertices.size()];
     List<T> foundVertices = new ArrayList<>();
+    SearchStats.Run run = new SearchStats.Run(SearchStats.Search.ITERATIVE_BFS);
 
-    for (T root : getRoots()) {
-      found.enqueue(root);
-      visited.add(root);
-
-      // While the queue is not empty,
-      while (!found.isEmpty()) {
-        // Dequeue the queue and add to list of found vertices,
-        // granted the list does not already contain the vertex
-        T currentVertex = found.dequeue();
-        foundVertices.add(currentVertex);
-
-        LinkedList<Edge<T>> vertexEdges = adjacencyMap.get(currentVertex);
-
-        for (int i = 0; i < vertexEdges.size(); i++) {
-          T vertex = vertexEdges.get(i).getDestination();
-          if (!visited.contains(vertex)) {
-            found.enqueue(vertex);
-            visited.add(vertex);
+    try {
+      for (int root : getRootIndices()) {
+        found.enqueue(root);
+        visited[root] = true;
+
+        // While the queue is not empty,
+        while (!found.isEmpty()) {
+          // Dequeue the queue and add to list of found vertices,
+          // granted the list does not already contain the vertex
+          step();
+          int currentVertex = found.dequeue();
+          foundVertices.add(vertices.get(currentVertex));
+
+          int[] neighbours = adjacency.neighbours(currentVertex);
+          run.visit(neighbours.length);
+          for (int vertex : neighbours) {
+            if (!visited[vertex]) {
+              found.enqueue(vertex);
+              visited[vertex] = true;
+            }
           }
         }
       }
+    } catch (BudgetExceededException e) {
+      throw e.withPartialResult(foundVertices);
+    } finally {
+      run.finish();
     }
     return foundVertices;
   }
@@ -235,36 +421,38 @@ public class Graph<T extends Comparable<T>> {
   public List<T> iterativeDepthFirstSearch() {
 
     List<T> output = new ArrayList<>();
-    Stack<T> stack = new Stack<>();
-    Set<T> visited = new HashSet<>();
+    Stack<Integer> stack = new Stack<>();
+    boolean[] visited = new boolean[vertices.size()];
+    SearchStats.Run run = new SearchStats.Run(SearchStats.Search.ITERATIVE_DFS);
 
-    for (T root : getRoots()) {
-
-      visited.add(root);
-      stack.push(root);
+    try {
+      for (int root : getRootIndices()) {
 
-      while (!stack.isEmpty()) {
-        // sets the current vertex to the top of the stack.
-        T currentVertex = stack.peek();
+        visited[root] = true;
+        stack.push(root);
 
-        if (!adjacencyMap.get(currentVertex).isEmpty()) {
-          // Gets the List of edges connected to vertex.
-          LinkedList<Edge<T>> vertexEdges = adjacencyMap.get(currentVertex);
-          output.add(stack.pop()); // removes from stack and adds to output.
+        while (!stack.isEmpty()) {
+          // removes the top of the stack and adds to output.
+          step();
+          int currentVertex = stack.pop();
+          output.add(vertices.get(currentVertex));
 
-          for (int i = vertexEdges.size() - 1; i > -1; i--) {
-            if (!visited.contains(vertexEdges.get(i).getDestination())) {
+          // Gets the list of verticies connected to vertex.
+          int[] vertexEdges = adjacency.neighbours(currentVertex);
+          run.visit(vertexEdges.length);
+          for (int i = vertexEdges.length - 1; i > -1; i--) {
+            if (!visited[vertexEdges[i]]) {
               // adds all connected vertices to the stack.
-              stack.push(vertexEdges.get(i).getDestination());
-              visited.add(vertexEdges.get(i).getDestination());
+              stack.push(vertexEdges[i]);
+              visited[vertexEdges[i]] = true;
             }
           }
-        } else {
-          if (!stack.isEmpty()) {
-            output.add(stack.pop());
-          }
         }
       }
+    } catch (BudgetExceededException e) {
+      throw e.withPartialResult(output);
+    } finally {
+      run.finish();
     }
     return output;
   }
@@ -277,14 +465,21 @@ public class Graph<T extends Comparable<T>> {
   public List<T> recursiveBreadthFirstSearch() {
 
     // Initialise datastructures
-    Set<T> found = new HashSet<>();
+    boolean[] found = new boolean[this.vertices.size()];
     List<T> vertices = new ArrayList<>();
-    Queue<T> queue = new Queue<>();
+    Queue<Integer> queue = new Queue<>();
+    SearchStats.Run run = new SearchStats.Run(SearchStats.Search.RECURSIVE_BFS);
 
     // Loop through ordered roots for determinisism
-    for (T root : getRoots()) {
-      queue.enqueue(root);
-      searchNeighbour(found, vertices, queue);
+    try {
+      for (int root : getRootIndices()) {
+        queue.enqueue(root);
+        searchNeighbour(found, vertices, queue, run);
+      }
+    } catch (BudgetExceededException e) {
+      throw e.withPartialResult(vertices);
+    } finally {
+      run.finish();
     }
     return vertices;
   }
@@ -292,35 +487,37 @@ public class Graph<T extends Comparable<T>> {
   /**
    * Recursive function that searches the adjacent vertices of the graph.
    *
-   * @param currentVertex is the current vertex level being searched.
    * @param found is the list of vertices that have been found.
    * @param vertices is the output of the function.
    * @param queue is the current vertices in queue.
-   * @return returns the helper function itself.
+   * @param run counts the verticies visited and edges scanned.
    */
-  private void searchNeighbour(Set<T> found, List<T> vertices, Queue<T> queue) {
+  private void searchNeighbour(
+      boolean[] found, List<T> vertices, Queue<Integer> queue, SearchStats.Run run) {
     // Base condition: if the queue is empty, then return visited vertices
     if (queue.isEmpty()) {
       return;
     }
     // 'Dequeue': take the next vertex from the start of the queue
-    T currentVertex = queue.dequeue();  
-    found.add(currentVertex);
-    vertices.add(currentVertex);
-    LinkedList<Edge<T>> vertexEdges = adjacencyMap.get(currentVertex);
+    step();
+    int currentVertex = queue.dequeue();
+    found[currentVertex] = true;
+    vertices.add(this.vertices.get(currentVertex));
 
     // If this vertex is not already visited, add it to visited vertices and process it
-    for (int i = 0; i < vertexEdges.size(); i++) {
-      if (!found.contains(vertexEdges.get(i).getDestination())) {
+    int[] neighbours = adjacency.neighbours(currentVertex);
+    run.visit(neighbours.length);
+    for (int vertex : neighbours) {
+      if (!found[vertex]) {
         // If we have not visited this vertex before,
         // Add visit it now and add it to the queue.
-        found.add(vertexEdges.get(i).getDestination());
-        queue.enqueue(vertexEdges.get(i).getDestination());
+        found[vertex] = true;
+        queue.enqueue(vertex);
       }
     }
 
     // Recursive call with updated queue and visitedVertices
-    searchNeighbour(found, vertices, queue);
+    searchNeighbour(found, vertices, queue, run);
   }
 
   /**
@@ -331,14 +528,21 @@ public class Graph<T extends Comparable<T>> {
   public List<T> recursiveDepthFirstSearch() {
 
     List<T> vertices = new ArrayList<>();
-    Stack<T> stack = new Stack<>();
-    Set<T> visited = new HashSet<>();
+    Stack<Integer> stack = new Stack<>();
+    boolean[] visited = new boolean[this.vertices.size()];
+    SearchStats.Run run = new SearchStats.Run(SearchStats.Search.RECURSIVE_DFS);
 
     // Go through the roots in order for determinisim
-    for (T root : getRoots()) {
-      stack.push(root); // add the root to the stack.
-      // Call the recursive function to search the next depth.
-      searchNextDepth(visited, vertices, stack);
+    try {
+      for (int root : getRootIndices()) {
+        stack.push(root); // add the root to the stack.
+        // Call the recursive function to search the next depth.
+        searchNextDepth(visited, vertices, stack, run);
+      }
+    } catch (BudgetExceededException e) {
+      throw e.withPartialResult(vertices);
+    } finally {
+      run.finish();
     }
     return vertices;
   }
@@ -346,99 +550,916 @@ public class Graph<T extends Comparable<T>> {
   /**
    * Recursive function that searches the next depth of the graph.
    *
-   * @param currentVertex is the current vertex level being searched.
    * @param found is the set of vertices that have been found.
    * @param vertices is the list of vertices that have been found.
    * @param stack is the current stack of vertices found.
-   * @return the function itself.
+   * @param run counts the verticies visited and edges scanned.
    */
-  private void searchNextDepth(Set<T> found, List<T> vertices, Stack<T> stack) {
+  private void searchNextDepth(
+      boolean[] found, List<T> vertices, Stack<Integer> stack, SearchStats.Run run) {
     // Base condition: if the stack is empty, then return visited vertices
     if (stack.isEmpty()) {
       return;
     }
 
     // add to the list of vertices the found vertex,
-    found.add(stack.peek());
-    T currentVertex = stack.peek();
-    vertices.add(stack.pop());
-    LinkedList<Edge<T>> vertexEdges = this.adjacencyMap.get(currentVertex);
-
-    if (!vertexEdges.isEmpty()) {
-      for (int i = vertexEdges.size() - 1; i > -1; i--) {
-        if (!found.contains(vertexEdges.get(i).getDestination())) {
-          stack.push(vertexEdges.get(i).getDestination());
-          found.add(vertexEdges.get(i).getDestination());
+    step();
+    int currentVertex = stack.pop();
+    found[currentVertex] = true;
+    vertices.add(this.vertices.get(currentVertex));
+
+    int[] vertexEdges = adjacency.neighbours(currentVertex);
+    run.visit(vertexEdges.length);
+    for (int i = vertexEdges.length - 1; i > -1; i--) {
+      if (!found[vertexEdges[i]]) {
+        stack.push(vertexEdges[i]);
+        found[vertexEdges[i]] = true;
+      }
+    }
+    searchNextDepth(found, vertices, stack, run);
+  }
+
+  /**
+   * Returns the verticies in the order they were given to the graph.
+   *
+   * @return returns the verticies in insertion order.
+   */
+  public List<T> getVerticesInInsertionOrder() {
+    List<T> ordered = new ArrayList<>();
+    for (int index : vertexOrder) {
+      ordered.add(vertices.get(index));
+    }
+    return ordered;
+  }
+
+  /**
+   * Returns the edges in the order they were given to the graph.
+   *
+   * @return returns the edges in insertion order.
+   */
+  public List<Edge<T>> getEdgesInInsertionOrder() {
+    // An edge that was removed and added again is listed at its latest position only.
+    Set<Long> added = new HashSet<>();
+    List<Edge<T>> addedOrdered = new ArrayList<>();
+    for (int i = addedEdgeCount - 1; i >= 0; i--) {
+      int source = (int) (addedEdges[i] >>> 32);
+      int destination = (int) addedEdges[i];
+      if (adjacency.hasEdge(source, destination) && added.add(addedEdges[i])) {
+        addedOrdered.add(new Edge<>(vertices.get(source), vertices.get(destination)));
+      }
+    }
+    Collections.reverse(addedOrdered);
+
+    int[] positions = null;
+    if (edgeOrder != null) {
+      positions = new int[edgeOrder.length];
+      for (int i = 0; i < edgeOrder.length; i++) {
+        positions[edgeOrder[i]] = i;
+      }
+    }
+
+    // Walk the adjacency the given edges were built into in sorted order, putting each edge back
+    // where it was given, unless it has since been removed or added again.
+    boolean edited = orderedAdjacency != adjacency;
+    List<Edge<T>> ordered =
+        new ArrayList<>(Collections.nCopies((int) orderedAdjacency.edgeCount(), null));
+    int rank = 0;
+    for (int v1 = 0; v1 < orderedAdjacency.vertexCount(); v1++) {
+      int source = orderedIndices == null ? v1 : orderedIndices[v1];
+      for (int v2 : orderedAdjacency.neighbours(v1)) {
+        int destination = orderedIndices == null ? v2 : orderedIndices[v2];
+        int position = positions == null ? rank : positions[rank];
+        rank++;
+        if (!edited
+            || (adjacency.hasEdge(source, destination)
+                && !added.contains(pack(source, destination)))) {
+          ordered.set(position, new Edge<>(vertices.get(source), vertices.get(destination)));
         }
       }
-    } else {
-      if (!stack.isEmpty() && !found.contains(stack.peek())) {
-        vertices.add(stack.pop());
+    }
+    if (edited) {
+      ordered.removeIf(edge -> edge == null);
+    }
+    ordered.addAll(addedOrdered);
+    return ordered;
+  }
+
+  /**
+   * Computes a 64-bit hash of the verticies and edges, independent of the order they were given
+   * in or how the adjacency is represented.
+   *
+   * <p>The hash is a sum of a hash of each vertex and edge, so it is kept up to date as edges are
+   * added and removed rather than being recomputed.
+   *
+   * @return returns the content hash.
+   */
+  public long getContentHash() {
+    return contentHash;
+  }
+
+  /**
+   * Returns the number of verticies in the graph.
+   *
+   * @return returns the vertex count.
+   */
+  public int getVertexCount() {
+    return vertices.size();
+  }
+
+  /**
+   * Returns the number of edges in the graph.
+   *
+   * @return returns the edge count.
+   */
+  public long getEdgeCount() {
+    return adjacency.edgeCount();
+  }
+
+  /**
+   * Returns the representation the adjacency is held in. A graph that has been edited holds it in
+   * editable lists, whatever it was created with.
+   *
+   * @return returns the representation, which is never {@link Representation#AUTO}.
+   */
+  public Representation getRepresentation() {
+    return adjacency.representation();
+  }
+
+  /**
+   * Estimates the heap the graph retains, broken down by the structures that hold it.
+   *
+   * @return returns the estimate.
+   */
+  public Footprint getFootprint() {
+    Footprint footprint = new Footprint(getEdgeCount());
+
+    long values = 0;
+    for (T vertex : vertices) {
+      values += Footprint.value(vertex);
+    }
+    footprint.add("vertex values", values);
+    footprint.add(
+        "vertex list",
+        Footprint.object(2 * Integer.BYTES + Footprint.REFERENCE)
+            + Footprint.array(vertices.size(), Footprint.REFERENCE));
+
+    // Indices up to 127 are boxed to cached Integers, which every graph shares.
+    footprint.add(
+        "vertex index",
+        Footprint.hashMap(indices.size())
+            + Math.max(0, indices.size() - 128) * Footprint.object(Integer.BYTES));
+    footprint.add("vertex order", Footprint.array(vertexOrder.length, Integer.BYTES));
+    footprint.add(
+        "edge order",
+        (edgeOrder != null ? Footprint.array(edgeOrder.length, Integer.BYTES) : 0)
+            + (orderedIndices != null ? Footprint.array(orderedIndices.length, Integer.BYTES) : 0)
+            + Footprint.array(addedEdges.length, Long.BYTES));
+    // A snapshot of editable lists shares its rows with the adjacency, so only counts when the
+    // graph was given in another representation.
+    if (orderedAdjacency != adjacency && !(orderedAdjacency instanceof ListAdjacency)) {
+      footprint.add("adjacency as given", orderedAdjacency.heapBytes());
+    }
+    footprint.add("adjacency", adjacency.heapBytes());
+    footprint.addOffHeap(adjacency.offHeapBytes());
+    if (reverse != null) {
+      footprint.add("reverse adjacency", reverse.heapBytes());
+    }
+    return footprint;
+  }
+
+  /**
+   * Determines if the graph contains an edge.
+   *
+   * @param source is the source of the edge.
+   * @param destination is the destination of the edge.
+   * @return returns true if the edge is in the graph.
+   */
+  public boolean hasEdge(T source, T destination) {
+    Integer sourceIndex = indices.get(source);
+    Integer destinationIndex = indices.get(destination);
+    return sourceIndex != null
+        && destinationIndex != null
+        && adjacency.hasEdge(sourceIndex, destinationIndex);
+  }
+
+  /**
+   * Adds a vertex with no edges to the graph.
+   *
+   * <p>Verticies are numbered in numerical order, so every index after the new vertex shifts up
+   * by one. This costs a pass over the verticies and edges, unlike edge edits, so prefer {@link
+   * #addVertices(Collection)} when adding several.
+   *
+   * @param vertex is the vertex to add.
+   * @return returns true if the vertex was not already in the graph.
+   */
+  public boolean addVertex(T vertex) {
+    return addVertices(List.of(vertex)) == 1;
+  }
+
+  /**
+   * Adds verticies with no edges to the graph, renumbering the existing verticies once.
+   *
+   * @param newVertices is the verticies to add, in the order to list them.
+   * @return returns the number of verticies that were not already in the graph.
+   * @throws IllegalStateException if the graph is frozen.
+   */
+  public int addVertices(Collection<T> newVertices) {
+    checkEditable();
+    List<T> added = new ArrayList<>();
+    Set<T> seen = new HashSet<>();
+    for (T vertex : newVertices) {
+      if (!indices.containsKey(vertex) && seen.add(vertex)) {
+        added.add(vertex);
       }
     }
-    searchNextDepth(found, vertices, stack);
+    if (added.isEmpty()) {
+      return 0;
+    }
+
+    // Merge the new verticies into numerical order, recording where each old index moves.
+    List<T> sortedAdded = new ArrayList<>(added);
+    Collections.sort(sortedAdded, getComparator());
+    List<T> merged = new ArrayList<>(vertices.size() + added.size());
+    int[] moved = new int[vertices.size()];
+    int next = 0;
+    for (int i = 0; i < vertices.size(); i++) {
+      while (next < sortedAdded.size()
+          && getComparator().compare(sortedAdded.get(next), vertices.get(i)) < 0) {
+        merged.add(sortedAdded.get(next++));
+      }
+      moved[i] = merged.size();
+      merged.add(vertices.get(i));
+    }
+    merged.addAll(sortedAdded.subList(next, sortedAdded.size()));
+    vertices = merged;
+    indices = new HashMap<>();
+    for (int i = 0; i < vertices.size(); i++) {
+      indices.put(vertices.get(i), i);
+    }
+
+    getEditableAdjacency().renumber(moved, vertices.size());
+    if (reverse != null) {
+      reverse.renumber(moved, vertices.size());
+    }
+
+    // Renumber the remembered orders, and list the new verticies last.
+    int[] order = Arrays.copyOf(vertexOrder, vertexOrder.length + added.size());
+    for (int i = 0; i < vertexOrder.length; i++) {
+      order[i] = moved[vertexOrder[i]];
+    }
+    for (int i = 0; i < added.size(); i++) {
+      order[vertexOrder.length + i] = indices.get(added.get(i));
+      contentHash += hashVertex(added.get(i));
+    }
+    vertexOrder = order;
+    int[] renumbered = new int[orderedAdjacency.vertexCount()];
+    for (int i = 0; i < renumbered.length; i++) {
+      renumbered[i] = moved[orderedIndices == null ? i : orderedIndices[i]];
+    }
+    orderedIndices = renumbered;
+    unshareAddedEdges();
+    for (int i = 0; i < addedEdgeCount; i++) {
+      addedEdges[i] = pack(moved[(int) (addedEdges[i] >>> 32)], moved[(int) addedEdges[i]]);
+    }
+    return added.size();
+  }
+
+  /**
+   * Creates an editable copy of the graph. The copy shares the adjacency, verticies and insertion
+   * orders with this graph, and each side copies a part only when it edits it, so copying costs a
+   * pass over chunks of verticies rather than the whole graph.
+   *
+   * @return returns the copy.
+   */
+  public Graph<T> copy() {
+    return new Graph<>(this);
+  }
+
+  /**
+   * Makes the graph read-only, so it can be read from several threads at once. The counters are
+   * brought up to date now, so reading them never writes to the graph, and the graph gives up its
+   * editable storage and shares the edges added to it, so copying it never writes to it either.
+   * The count of paths missing their edge is left until transitivity is first checked, as it costs
+   * far more than an edit, and is then counted once under the graph's lock.
+   */
+  public void freeze() {
+    if (frozen) {
+      return;
+    }
+
+    batching = false;
+    updateCounters();
+    if (addedEdgesStale) {
+      compactAddedEdges();
+    }
+    addedEdgesShared = true;
+    if (adjacency instanceof ListAdjacency) {
+      ((ListAdjacency) adjacency).disown();
+    }
+    if (reverse != null) {
+      reverse.disown();
+    }
+    frozen = true;
+  }
+
+  /**
+   * Determines if the graph has been frozen.
+   *
+   * @return returns true if the graph can no longer be edited.
+   */
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Starts a batch of edits. Edits in the batch do not adjust the property counters one by one;
+   * instead they are recounted once, the next time a property is checked after the batch.
+   */
+  public void beginBatch() {
+    checkEditable();
+    batching = true;
+    countersValid = false;
+    reverse = null;
+  }
+
+  /** Ends a batch of edits started by {@link #beginBatch()}. */
+  public void endBatch() {
+    batching = false;
+  }
+
+  /**
+   * Adds an edge between two existing verticies.
+   *
+   * <p>The first edit copies the adjacency into an editable representation, after which each edit
+   * only shifts the neighbours of the source vertex.
+   *
+   * @param source is the source of the edge.
+   * @param destination is the destination of the edge.
+   * @return returns true if the edge was not already in the graph.
+   * @throws IllegalArgumentException if either vertex is not in the graph.
+   * @throws IllegalStateException if the graph is frozen.
+   */
+  public boolean addEdge(T source, T destination) {
+    checkEditable();
+    int sourceIndex = getIndex(source);
+    int destinationIndex = getIndex(destination);
+
+    if (!batching) {
+      updateCounters();
+    }
+    ListAdjacency editable = getEditableAdjacency();
+    if (editable.hasEdge(sourceIndex, destinationIndex)) {
+      return false;
+    }
+    // Paths from the source to the destination are no longer missing their edge.
+    long closedPaths = reverse != null ? countPaths(sourceIndex, destinationIndex) : 0;
+    editable.addEdge(sourceIndex, destinationIndex);
+    edited = true;
+
+    if (reverse != null) {
+      reverse.addEdge(destinationIndex, sourceIndex);
+      transitiveViolations +=
+          countUnreached(sourceIndex, destinationIndex)
+              + countUnreaching(sourceIndex, destinationIndex)
+              - closedPaths;
+    }
+    if (countersValid) {
+      countEdge(sourceIndex, destinationIndex, 1);
+    }
+    appendAddedEdge(sourceIndex, destinationIndex);
+    contentHash += hashEdge(source, destination);
+    return true;
+  }
+
+  /**
+   * Removes an edge from the graph.
+   *
+   * @param source is the source of the edge.
+   * @param destination is the destination of the edge.
+   * @return returns true if the edge was in the graph.
+   * @throws IllegalArgumentException if either vertex is not in the graph.
+   * @throws IllegalStateException if the graph is frozen.
+   */
+  public boolean removeEdge(T source, T destination) {
+    checkEditable();
+    int sourceIndex = getIndex(source);
+    int destinationIndex = getIndex(destination);
+
+    if (!batching) {
+      updateCounters();
+    }
+    ListAdjacency editable = getEditableAdjacency();
+    if (!editable.hasEdge(sourceIndex, destinationIndex)) {
+      return false;
+    }
+    // Paths through the edge that were missing their edge no longer exist.
+    long openedPaths =
+        reverse != null
+            ? countUnreached(sourceIndex, destinationIndex)
+                + countUnreaching(sourceIndex, destinationIndex)
+            : 0;
+    editable.removeEdge(sourceIndex, destinationIndex);
+    edited = true;
+
+    if (reverse != null) {
+      reverse.removeEdge(destinationIndex, sourceIndex);
+      transitiveViolations += countPaths(sourceIndex, destinationIndex) - openedPaths;
+    }
+    if (countersValid) {
+      countEdge(sourceIndex, destinationIndex, -1);
+    }
+    // The edge is skipped when the edges are listed, and dropped from those added at the latest
+    // when the graph is frozen.
+    addedEdgesStale = true;
+    contentHash -= hashEdge(source, destination);
+    return true;
   }
 
   /**
-   * Creates an adjacency map of the graph.
+   * Numbers the verticies in numerical order and creates the adjacency of the graph.
    *
-   * @param vertices is the list of vertices in the graph.
    * @param edges is the list of edges in the graph.
+   * @param representation is where and how the adjacency is stored.
    */
-  private void createAdjacencyMap(Set<T> vertices, Set<Edge<T>> edges) {
+  private void createAdjacency(Set<Edge<T>> edges, Representation representation) {
 
-    List<T> sortVertices = new ArrayList<>();
-    for (T vertex : vertices) {
-      sortVertices.add(vertex);
+    // Edges may reference verticies that were not given explicitly.
+    List<T> insertionOrder = new ArrayList<>(vertices);
+    Set<T> known = new HashSet<>(vertices);
+    for (Edge<T> edge : edges) {
+      if (known.add(edge.getSource())) {
+        vertices.add(edge.getSource());
+        insertionOrder.add(edge.getSource());
+      }
+      if (known.add(edge.getDestination())) {
+        vertices.add(edge.getDestination());
+        insertionOrder.add(edge.getDestination());
+      }
     }
     // Sorts the list based on numberical order.
-    Collections.sort(sortVertices, getComparator());
-    // go through the sorted vertecies and add the edges to the adjacency map.
-    for (T vertex1 : sortVertices) {
-      LinkedList<Edge<T>> orderedEdges = new LinkedList<>();
-      for (T vertex2 : sortVertices) {
-        Edge<T> adjacent = new Edge<T>(vertex1, vertex2);
-        if (edges.contains(adjacent)) {
-          orderedEdges.add(adjacent);
-        }
-      } // Return the adjacency Map where each linked list is ordered.
-      this.adjacencyMap.put(vertex1, orderedEdges);
+    Collections.sort(vertices, getComparator());
+    for (int i = 0; i < vertices.size(); i++) {
+      indices.put(vertices.get(i), i);
+      contentHash += hashVertex(vertices.get(i));
+    }
+    this.vertexOrder = new int[insertionOrder.size()];
+    for (int i = 0; i < vertexOrder.length; i++) {
+      vertexOrder[i] = indices.get(insertionOrder.get(i));
     }
+
+    // Count the out-degrees so the store can be sized exactly, then fill it.
+    int[] degrees = new int[vertices.size()];
+    for (Edge<T> edge : edges) {
+      degrees[indices.get(edge.getSource())]++;
+      contentHash += hashEdge(edge.getSource(), edge.getDestination());
+    }
+    AdjacencyStore.Builder builder = representation.builder(degrees);
+    if (representation == Representation.MAPPED) {
+      for (Edge<T> edge : edges) {
+        builder.addEdge(indices.get(edge.getSource()), indices.get(edge.getDestination()));
+      }
+    } else {
+      this.edgeOrder = addSorted(edges, degrees, builder);
+    }
+    this.adjacency = builder.build();
+    this.orderedAdjacency = adjacency;
   }
 
   /**
-   * Determines if the vertex has an in-degree of zero.
+   * Adds edges to a builder in sorted order, finding the position of each edge in that order.
    *
-   * @param vertex is the vertex being checked.
-   * @return returns true if the vertex has an in-degree of zero.
+   * @param edges is the edges, in the order they were given.
+   * @param degrees is the out-degree of each vertex.
+   * @param builder is the builder of the adjacency.
+   * @return returns the position in sorted order of each edge, in the order they were given, or
+   *     null if they were given in sorted order.
    */
-  private Boolean isInDegreeZero(T vertex) {
-    Boolean isRoot = true;
+  private int[] addSorted(Set<Edge<T>> edges, int[] degrees, AdjacencyStore.Builder builder) {
+    int[] starts = new int[degrees.length + 1];
+    for (int v = 0; v < degrees.length; v++) {
+      starts[v + 1] = starts[v] + degrees[v];
+    }
+
+    // Group the edges by source, packing each destination with where the edge was given.
+    int[] filled = Arrays.copyOf(starts, degrees.length);
+    long[] sorted = new long[edges.size()];
+    int given = 0;
     for (Edge<T> edge : edges) {
-      // If the current vertex is not a destination of any edge,
-      // then the in-degree is zero
-      if (edge.getDestination().equals(vertex)) {
-        isRoot = false;
-        return isRoot;
+      int source = indices.get(edge.getSource());
+      sorted[filled[source]++] = pack(indices.get(edge.getDestination()), given++);
+    }
+
+    int[] order = new int[sorted.length];
+    boolean inOrder = true;
+    for (int v = 0; v < degrees.length; v++) {
+      Arrays.sort(sorted, starts[v], starts[v + 1]);
+      for (int rank = starts[v]; rank < starts[v + 1]; rank++) {
+        builder.addEdge(v, (int) (sorted[rank] >>> 32));
+        order[(int) sorted[rank]] = rank;
+        inOrder &= (int) sorted[rank] == rank;
       }
     }
-    return isRoot;
+    return inOrder ? null : order;
+  }
+
+  /**
+   * Counts the self-loops, edges without a reverse, and pairs joined both ways, if they have not
+   * been counted yet.
+   */
+  private void updateCounters() {
+    if (countersValid) {
+      return;
+    }
+
+    long[] counts = adjacency.countRelation();
+    selfLoops = (int) counts[0];
+    unmatchedEdges = counts[1];
+    reversedPairs = counts[2];
+    countersValid = true;
   }
 
   /**
-   * Determines if the vertex has an out-degree of one.
+   * Adds the edges leaving a vertex to the self-loop, unmatched edge and reversed pair counters.
    *
-   * @param vertex is the vertex being checked.
-   * @return returns true if the vertex has an out-degree of one.
+   * @param v1 is the index of the vertex.
+   * @param fromV1 is the neighbours of the vertex.
    */
-  private Boolean isOutDegreeOne(T vertex) {
+  private void countOutgoing(int v1, int[] fromV1) {
+    for (int v2 : fromV1) {
+      if (v1 == v2) {
+        selfLoops++;
+      } else if (!adjacency.hasEdge(v2, v1)) {
+        unmatchedEdges++;
+      } else if (v1 < v2) {
+        // Count each pair joined both ways once.
+        reversedPairs++;
+      }
+    }
+  }
 
-    for (Edge<T> edge : edges) {
-      if (edge.getSource().equals(vertex)) {
-        return true;
+  /**
+   * Adjusts the property counters for an edge that was just added or removed.
+   *
+   * @param source is the index of the source vertex.
+   * @param destination is the index of the destination vertex.
+   * @param change is 1 if the edge was added, or -1 if it was removed.
+   */
+  private void countEdge(int source, int destination, int change) {
+    if (source == destination) {
+      selfLoops += change;
+    } else if (adjacency.hasEdge(destination, source)) {
+      // The reverse edge gains or loses its match, and the pair is or was joined both ways.
+      unmatchedEdges -= change;
+      reversedPairs += change;
+    } else {
+      unmatchedEdges += change;
+    }
+  }
+
+  /**
+   * Counts the paths u -&gt; v -&gt; w without an edge u -&gt; w, and indexes the incoming edges of
+   * each vertex so edits can adjust the count, if this has not been done yet.
+   *
+   * <p>A frozen graph may be checked from several threads, so the count is taken under the graph's
+   * lock and published by the write of the index, which readers check first.
+   */
+  private void updateTransitiveViolations() {
+    if (reverse != null) {
+      return;
+    }
+
+    synchronized (this) {
+      if (reverse != null) {
+        return;
+      }
+
+      long violations = 0;
+      int[] inDegrees = getInDegrees();
+      AdjacencyStore.Builder builder = Representation.LIST.builder(inDegrees);
+      for (int v1 = 0; v1 < vertices.size(); v1++) {
+        step();
+        int[] fromV1 = adjacency.neighbours(v1);
+        for (int v2 : fromV1) {
+          builder.addEdge(v2, v1);
+          int[] fromV2 = adjacency.neighbours(v2);
+          work(fromV2.length + fromV1.length);
+          violations += countMissing(fromV2, fromV1);
+        }
+      }
+      transitiveViolations = violations;
+      reverse = (ListAdjacency) builder.build();
+    }
+  }
+
+  /**
+   * Counts the verticies v with edges source -&gt; v -&gt; destination.
+   *
+   * @param source is the index of the source vertex.
+   * @param destination is the index of the destination vertex.
+   * @return returns the number of paths.
+   */
+  private long countPaths(int source, int destination) {
+    long count = 0;
+
+    // Walk whichever side has fewer edges.
+    if (adjacency.degree(source) <= reverse.degree(destination)) {
+      for (int middle : adjacency.neighbours(source)) {
+        count += adjacency.hasEdge(middle, destination) ? 1 : 0;
+      }
+    } else {
+      for (int middle : reverse.neighbours(destination)) {
+        count += adjacency.hasEdge(source, middle) ? 1 : 0;
       }
     }
-    return false;
+    return count;
+  }
+
+  /**
+   * Counts the paths source -&gt; middle -&gt; w without an edge source -&gt; w.
+   *
+   * @param source is the index of the source vertex.
+   * @param middle is the index of the middle vertex.
+   * @return returns the number of paths missing their edge.
+   */
+  private long countUnreached(int source, int middle) {
+    return countMissing(adjacency.neighbours(middle), adjacency.neighbours(source));
+  }
+
+  /**
+   * Counts the paths u -&gt; middle -&gt; destination without an edge u -&gt; destination.
+   *
+   * @param middle is the index of the middle vertex.
+   * @param destination is the index of the destination vertex.
+   * @return returns the number of paths missing their edge.
+   */
+  private long countUnreaching(int middle, int destination) {
+    long count = 0;
+    for (int source : reverse.neighbours(middle)) {
+      count += adjacency.hasEdge(source, destination) ? 0 : 1;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the adjacency as an editable store, copying it into one on the first edit.
+   *
+   * @return returns the editable adjacency.
+   */
+  private ListAdjacency getEditableAdjacency() {
+    if (!(adjacency instanceof ListAdjacency)) {
+      adjacency = ListAdjacency.copyOf(adjacency);
+    } else if (orderedAdjacency == adjacency) {
+      // Keep the lists the edges were given in as they are, for listing the edges in order.
+      orderedAdjacency = ((ListAdjacency) adjacency).snapshot();
+    }
+    return (ListAdjacency) adjacency;
+  }
+
+  /**
+   * Counts one vertex visited by a check or search, stopping it if the thread running it has been
+   * interrupted, such as by cancelling a background job, or has spent its {@link Budget}. Checks
+   * and searches only write to their own local state, or to counts that are recounted from
+   * scratch, so stopping one part way leaves the graph as it was.
+   *
+   * @throws CancellationException if the current thread has been interrupted.
+   * @throws BudgetExceededException if the current thread's budget is spent.
+   */
+  static void step() {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("The graph operation was cancelled");
+    }
+    Budget.step();
+  }
+
+  /**
+   * Counts work done within a step, such as comparing the neighbours of two verticies, stopping
+   * it as {@link #step()} does. Checks call this from loops whose work is not bounded by the
+   * number of verticies, so a few dense verticies cannot overrun a budget's time limit.
+   *
+   * @param units is the amount of work done.
+   * @throws CancellationException if the current thread has been interrupted.
+   * @throws BudgetExceededException if the current thread's time budget is spent.
+   */
+  static void work(long units) {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("The graph operation was cancelled");
+    }
+    Budget.work(units);
+  }
+
+  /**
+   * Checks that the graph can be edited.
+   *
+   * @throws IllegalStateException if the graph is frozen.
+   */
+  private void checkEditable() {
+    if (frozen) {
+      throw new IllegalStateException("The graph is frozen");
+    }
+  }
+
+  /**
+   * Returns the index of a vertex.
+   *
+   * @param vertex is the vertex.
+   * @return returns the index of the vertex.
+   * @throws IllegalArgumentException if the vertex is not in the graph.
+   */
+  private int getIndex(T vertex) {
+    Integer index = indices.get(vertex);
+    if (index == null) {
+      throw new IllegalArgumentException("Vertex " + vertex + " is not in the graph");
+    }
+    return index;
+  }
+
+  /**
+   * Shares editable lists with a copy of a graph. The lists of a frozen graph are never edited, so
+   * they are left as they are, and otherwise they move to a new generation too.
+   *
+   * @param lists is the lists of the graph being copied.
+   * @param frozen is whether the graph being copied is frozen.
+   * @return returns the lists of the copy.
+   */
+  private static ListAdjacency share(ListAdjacency lists, boolean frozen) {
+    return frozen ? lists.share() : lists.snapshot();
+  }
+
+  /**
+   * Appends an edge added after the graph was created to the order edges are listed in.
+   *
+   * @param source is the index of the source vertex.
+   * @param destination is the index of the destination vertex.
+   */
+  private void appendAddedEdge(int source, int destination) {
+    if (addedEdgeCount == addedEdges.length) {
+      addedEdges = Arrays.copyOf(addedEdges, Math.max(16, addedEdges.length * 2));
+      addedEdgesShared = false;
+    }
+    unshareAddedEdges();
+    addedEdges[addedEdgeCount++] = pack(source, destination);
+  }
+
+  /** Copies the edges added after the graph was created if they are shared with a copy. */
+  private void unshareAddedEdges() {
+    if (addedEdgesShared) {
+      addedEdges = addedEdges.clone();
+      addedEdgesShared = false;
+    }
+  }
+
+  /**
+   * Drops edges that were removed from those added after the graph was created. An edge that was
+   * removed and added again keeps only its latest position.
+   */
+  private void compactAddedEdges() {
+    unshareAddedEdges();
+    Set<Long> kept = new HashSet<>();
+    int size = 0;
+
+    // Walk backwards so the latest position of each edge is the one kept.
+    for (int i = addedEdgeCount - 1; i >= 0; i--) {
+      long packed = addedEdges[i];
+      if (adjacency.hasEdge((int) (packed >>> 32), (int) packed) && kept.add(packed)) {
+        addedEdges[addedEdgeCount - 1 - size++] = packed;
+      }
+    }
+    System.arraycopy(addedEdges, addedEdgeCount - size, addedEdges, 0, size);
+    addedEdgeCount = size;
+    addedEdgesStale = false;
+  }
+
+  /**
+   * Packs two non-negative ints into one long, ordered by the first and then the second.
+   *
+   * @param high is the int to put in the high bits.
+   * @param low is the int to put in the low bits.
+   * @return returns the packed long.
+   */
+  private static long pack(int high, int low) {
+    return ((long) high << 32) | low;
+  }
+
+  /**
+   * Hashes a vertex by its string form with 64-bit FNV-1a.
+   *
+   * @param vertex is the vertex.
+   * @return returns the hash.
+   */
+  private static long hashVertex(Object vertex) {
+    String id = vertex.toString();
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < id.length(); i++) {
+      hash = (hash ^ id.charAt(i)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Hashes an edge by mixing the hashes of its verticies, so it is unlikely to cancel out with
+   * the hashes of other edges or verticies when summed.
+   *
+   * @param source is the source of the edge.
+   * @param destination is the destination of the edge.
+   * @return returns the hash.
+   */
+  private static long hashEdge(Object source, Object destination) {
+    long hash = hashVertex(source) * 0x9E3779B97F4A7C15L + hashVertex(destination);
+    // The finaliser of SplitMix64.
+    hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+    hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+    return hash ^ (hash >>> 31);
+  }
+
+  /**
+   * Counts the edges arriving at each vertex.
+   *
+   * @return returns the in-degree of each vertex by index.
+   */
+  private int[] getInDegrees() {
+    int[] inDegrees = new int[vertices.size()];
+    for (int i = 0; i < vertices.size(); i++) {
+      step();
+      for (int neighbour : adjacency.neighbours(i)) {
+        inDegrees[neighbour]++;
+      }
+    }
+    return inDegrees;
+  }
+
+  /**
+   * Returns the indices of the roots in numerical order.
+   *
+   * @return returns the root indices.
+   */
+  private List<Integer> getRootIndices() {
+    List<Integer> roots = new ArrayList<>();
+    for (T root : getRoots()) {
+      roots.add(indices.get(root));
+    }
+    return roots;
+  }
+
+  /**
+   * Counts the elements of one sorted array that are not in another sorted array.
+   *
+   * @param values is the sorted array to count from.
+   * @param superset is the sorted array that should contain them.
+   * @return returns the number of values missing from the superset.
+   */
+  private static long countMissing(int[] values, int[] superset) {
+    long count = 0;
+    int j = 0;
+    for (int value : values) {
+      while (j < superset.length && superset[j] < value) {
+        j++;
+      }
+      if (j == superset.length || superset[j] != value) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Finds the first element of a sorted array that is not in another sorted array.
+   *
+   * @param values is the sorted array to look through.
+   * @param superset is the sorted array to look in.
+   * @return returns the first missing element, or -1 if every element is in the superset.
+   */
+  private static int firstMissing(int[] values, int[] superset) {
+    int j = 0;
+    for (int value : values) {
+      while (j < superset.length && superset[j] < value) {
+        j++;
+      }
+      if (j == superset.length || superset[j] != value) {
+        return value;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Determines if every element of one sorted array is in another sorted array.
+   *
+   * @param subset is the sorted array that should be contained.
+   * @param superset is the sorted array that should contain it.
+   * @return returns true if the subset is contained by the superset.
+   */
+  static boolean isSubset(int[] subset, int[] superset) {
+    int j = 0;
+    for (int value : subset) {
+      // Both arrays are sorted, so walk the superset forward only.
+      while (j < superset.length && superset[j] < value) {
+        j++;
+      }
+      if (j == superset.length || superset[j] != value) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
@@ -0,0 +1,147 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * An in-memory adjacency store in compressed sparse row form, with a hash table of every edge.
+ *
+ * <p>The rows answer traversals as they do for {@link CsrAdjacency}, but looking an edge up probes
+ * the table in constant time rather than searching its source's row, which pays for the table's
+ * memory once the average vertex has many neighbours. The table is open addressed with linear
+ * probing, and holds each edge as its source and destination packed into one long.
+ */
+class HashAdjacency extends CsrAdjacency {
+
+  private static final long EMPTY = -1;
+
+  /** The odd constant of Fibonacci hashing, which spreads packed edges across the table. */
+  private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  // Instance field.
+  private final long[] table;
+  private final int shift;
+
+  /**
+   * Creates a store from already sorted offsets and targets, and hashes every edge.
+   *
+   * @param offsets is the start of each vertex's neighbours, with one extra trailing entry.
+   * @param targets is the neighbours of every vertex.
+   */
+  HashAdjacency(int[] offsets, int[] targets) {
+    super(offsets, targets);
+
+    // At least twice as many slots as edges, so probes stay short, and always at least two slots,
+    // as no edges would otherwise need no bits, and a shift of 64 does not shift at all.
+    int bits = 64 - Long.numberOfLeadingZeros(2L * Math.max(1, targets.length) - 1);
+    this.table = new long[1 << bits];
+    this.shift = 64 - bits;
+    Arrays.fill(table, EMPTY);
+
+    for (int source = 0; source < offsets.length - 1; source++) {
+      for (int i = offsets[source]; i < offsets[source + 1]; i++) {
+        long key = pack(source, targets[i]);
+        int slot = slot(key);
+        while (table[slot] != EMPTY && table[slot] != key) {
+          slot = (slot + 1) & (table.length - 1);
+        }
+        table[slot] = key;
+      }
+    }
+  }
+
+  /**
+   * Creates a builder for a store with the given out-degrees.
+   *
+   * @param degrees is the out-degree of each vertex.
+   * @return the builder.
+   */
+  static AdjacencyStore.Builder builder(int[] degrees) {
+    AdjacencyStore.Builder rows = CsrAdjacency.builder(degrees);
+
+    return new AdjacencyStore.Builder() {
+      @Override
+      public void addEdge(int source, int destination) {
+        rows.addEdge(source, destination);
+      }
+
+      @Override
+      public AdjacencyStore build() {
+        CsrAdjacency csr = (CsrAdjacency) rows.build();
+        return new HashAdjacency(csr.offsets, csr.targets);
+      }
+    };
+  }
+
+  @Override
+  public Representation representation() {
+    return Representation.HASH;
+  }
+
+  @Override
+  public boolean hasEdge(int source, int destination) {
+    long key = pack(source, destination);
+    for (int slot = slot(key); table[slot] != EMPTY; slot = (slot + 1) & (table.length - 1)) {
+      if (table[slot] == key) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean hasKernels() {
+    return true;
+  }
+
+  /**
+   * Determines if the adjacency is transitive by looking up the edge that closes each path of two
+   * edges, rather than merging the rows of its ends.
+   *
+   * @return true if every vertex reaches everything its neighbours reach.
+   */
+  @Override
+  public boolean isTransitive() {
+    for (int v1 = 0; v1 < offsets.length - 1; v1++) {
+      Graph.step();
+      for (int i = offsets[v1]; i < offsets[v1 + 1]; i++) {
+        int v2 = targets[i];
+        if (v2 == v1) {
+          continue;
+        }
+        Graph.work(offsets[v2 + 1] - offsets[v2]);
+        for (int j = offsets[v2]; j < offsets[v2 + 1]; j++) {
+          if (!hasEdge(v1, targets[j])) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public long heapBytes() {
+    return super.heapBytes() + Footprint.array(table.length, Long.BYTES);
+  }
+
+  /**
+   * Packs an edge into one long.
+   *
+   * @param source is the index of the source vertex.
+   * @param destination is the index of the destination vertex.
+   * @return returns the source in the high half and the destination in the low half.
+   */
+  private static long pack(int source, int destination) {
+    return ((long) source << 32) | destination;
+  }
+
+  /**
+   * Finds the slot a packed edge hashes to.
+   *
+   * @param key is the packed edge.
+   * @return returns the slot its probe starts at.
+   */
+  private int slot(long key) {
+    return (int) ((key * MULTIPLIER) >>> shift);
+  }
+}
@@ -0,0 +1,331 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory adjacency store that keeps each vertex's neighbours in its own sorted array with
+ * spare capacity, so edges can be added and removed in place.
+ *
+ * <p>The rows are grouped into chunks so a {@link #snapshot()} can share them. Each store has a
+ * generation, and each chunk and row remembers the generation that last copied it; a store only
+ * writes to chunks and rows of its own generation, and copies any other before editing it.
+ */
+class ListAdjacency implements AdjacencyStore {
+
+  private static final int CHUNK_SHIFT = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  private static final int[] EMPTY_ROW = new int[0];
+  private static final AtomicInteger GENERATIONS = new AtomicInteger();
+
+  // Instance field.
+  private int[][][] rows;
+  private int[][] degrees;
+  private int[][] rowOwners;
+  private int[] chunkOwners;
+  private int generation;
+  private int vertexCount;
+  private long edgeCount;
+
+  private ListAdjacency(
+      int[][][] rows, int[][] degrees, int[][] rowOwners, int[] chunkOwners, int vertexCount) {
+    this.rows = rows;
+    this.degrees = degrees;
+    this.rowOwners = rowOwners;
+    this.chunkOwners = chunkOwners;
+    this.vertexCount = vertexCount;
+  }
+
+  /**
+   * Creates an empty store, with a row for each vertex that has no neighbours and no capacity.
+   *
+   * <p>A new store is generation 0 and owns every chunk, and a null row owners array means the
+   * chunk's owner also owns all of its rows.
+   *
+   * @param vertexCount is the number of verticies.
+   * @return the store.
+   */
+  private static ListAdjacency empty(int vertexCount) {
+    int chunkCount = (vertexCount + CHUNK_MASK) >>> CHUNK_SHIFT;
+    int[][][] rows = new int[chunkCount][][];
+    int[][] degrees = new int[chunkCount][];
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      int size = Math.min(CHUNK_SIZE, vertexCount - (chunk << CHUNK_SHIFT));
+      rows[chunk] = new int[size][];
+      Arrays.fill(rows[chunk], EMPTY_ROW);
+      degrees[chunk] = new int[size];
+    }
+    return new ListAdjacency(
+        rows, degrees, new int[chunkCount][], new int[chunkCount], vertexCount);
+  }
+
+  /**
+   * Creates a builder for a store with the given out-degrees.
+   *
+   * @param degrees is the out-degree of each vertex.
+   * @return the builder.
+   */
+  static AdjacencyStore.Builder builder(int[] degrees) {
+    final ListAdjacency store = empty(degrees.length);
+    for (int i = 0; i < degrees.length; i++) {
+      store.rows[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = new int[degrees[i]];
+    }
+
+    return new AdjacencyStore.Builder() {
+      @Override
+      public void addEdge(int source, int destination) {
+        int chunk = source >>> CHUNK_SHIFT;
+        int offset = source & CHUNK_MASK;
+        store.rows[chunk][offset][store.degrees[chunk][offset]++] = destination;
+        store.edgeCount++;
+      }
+
+      @Override
+      public AdjacencyStore build() {
+        for (int[][] chunk : store.rows) {
+          for (int[] row : chunk) {
+            Arrays.sort(row);
+          }
+        }
+        return store;
+      }
+    };
+  }
+
+  /**
+   * Copies another store into an editable one.
+   *
+   * @param store is the store to copy.
+   * @return the editable copy.
+   */
+  static ListAdjacency copyOf(AdjacencyStore store) {
+    ListAdjacency copy = empty(store.vertexCount());
+    for (int i = 0; i < copy.vertexCount; i++) {
+      int[] row = store.neighbours(i);
+      copy.rows[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = row;
+      copy.degrees[i >>> CHUNK_SHIFT][i & CHUNK_MASK] = row.length;
+    }
+    copy.edgeCount = store.edgeCount();
+    return copy;
+  }
+
+  /**
+   * Creates a copy that shares every chunk and row with this store. Both stores move to a new
+   * generation, so whichever edits a chunk or row first copies it, and the other is unaffected.
+   *
+   * <p>This costs one pass over the chunks, not the verticies or edges.
+   *
+   * @return the copy.
+   */
+  ListAdjacency snapshot() {
+    ListAdjacency copy = share();
+    disown();
+    return copy;
+  }
+
+  /**
+   * Creates a copy that shares every chunk and row with this store, moving only the copy to a new
+   * generation. This store is not written to, so it must no longer edit the rows it owns, as with
+   * one that has been {@link #disown() disowned}.
+   *
+   * @return the copy.
+   */
+  ListAdjacency share() {
+    ListAdjacency copy =
+        new ListAdjacency(
+            rows.clone(), degrees.clone(), rowOwners.clone(), chunkOwners.clone(), vertexCount);
+    copy.edgeCount = edgeCount;
+    copy.generation = GENERATIONS.incrementAndGet();
+    return copy;
+  }
+
+  /**
+   * Moves this store to a new generation, so it owns none of its chunks or rows and copies any of
+   * them before editing it.
+   */
+  void disown() {
+    generation = GENERATIONS.incrementAndGet();
+  }
+
+  @Override
+  public Representation representation() {
+    return Representation.LIST;
+  }
+
+  @Override
+  public int vertexCount() {
+    return vertexCount;
+  }
+
+  @Override
+  public long edgeCount() {
+    return edgeCount;
+  }
+
+  @Override
+  public int degree(int vertex) {
+    return degrees[vertex >>> CHUNK_SHIFT][vertex & CHUNK_MASK];
+  }
+
+  @Override
+  public int[] neighbours(int vertex) {
+    return Arrays.copyOf(rows[vertex >>> CHUNK_SHIFT][vertex & CHUNK_MASK], degree(vertex));
+  }
+
+  @Override
+  public boolean hasEdge(int source, int destination) {
+    return Arrays.binarySearch(
+            rows[source >>> CHUNK_SHIFT][source & CHUNK_MASK], 0, degree(source), destination)
+        >= 0;
+  }
+
+  /**
+   * Adds an edge, keeping the source's neighbours sorted.
+   *
+   * @param source is the index of the source vertex.
+   * @param destination is the index of the destination vertex.
+   * @return returns true if the edge was not already present.
+   */
+  boolean addEdge(int source, int destination) {
+    int degree = degree(source);
+    int search = Arrays.binarySearch(getRow(source), 0, degree, destination);
+    if (search >= 0) {
+      return false;
+    }
+
+    int[] row = getEditableRow(source, degree + 1);
+    int insertion = -search - 1;
+    System.arraycopy(row, insertion, row, insertion + 1, degree - insertion);
+    row[insertion] = destination;
+    degrees[source >>> CHUNK_SHIFT][source & CHUNK_MASK]++;
+    edgeCount++;
+    return true;
+  }
+
+  /**
+   * Renumbers the verticies after new verticies with no edges are inserted.
+   *
+   * @param moved is the new index of each existing vertex, in ascending order.
+   * @param vertexCount is the number of verticies including the new ones.
+   */
+  void renumber(int[] moved, int vertexCount) {
+    ListAdjacency renumbered = empty(vertexCount);
+
+    // The renumbering preserves order, so each row stays sorted.
+    for (int i = 0; i < this.vertexCount; i++) {
+      int degree = degree(i);
+      int[] row = isOwned(i) ? getRow(i) : Arrays.copyOf(getRow(i), degree);
+      for (int j = 0; j < degree; j++) {
+        row[j] = moved[row[j]];
+      }
+      renumbered.rows[moved[i] >>> CHUNK_SHIFT][moved[i] & CHUNK_MASK] = row;
+      renumbered.degrees[moved[i] >>> CHUNK_SHIFT][moved[i] & CHUNK_MASK] = degree;
+    }
+    rows = renumbered.rows;
+    degrees = renumbered.degrees;
+    rowOwners = renumbered.rowOwners;
+    chunkOwners = renumbered.chunkOwners;
+    Arrays.fill(chunkOwners, generation);
+    this.vertexCount = vertexCount;
+  }
+
+  /**
+   * Removes an edge, keeping the source's neighbours sorted.
+   *
+   * @param source is the index of the source vertex.
+   * @param destination is the index of the destination vertex.
+   * @return returns true if the edge was present.
+   */
+  boolean removeEdge(int source, int destination) {
+    int degree = degree(source);
+    int search = Arrays.binarySearch(getRow(source), 0, degree, destination);
+    if (search < 0) {
+      return false;
+    }
+
+    int[] row = getEditableRow(source, degree);
+    System.arraycopy(row, search + 1, row, search, degree - search - 1);
+    degrees[source >>> CHUNK_SHIFT][source & CHUNK_MASK]--;
+    edgeCount--;
+    return true;
+  }
+
+  /**
+   * Returns the row of a vertex, which may have spare capacity past its degree.
+   *
+   * @param vertex is the index of the vertex.
+   * @return the row.
+   */
+  private int[] getRow(int vertex) {
+    return rows[vertex >>> CHUNK_SHIFT][vertex & CHUNK_MASK];
+  }
+
+  /**
+   * Determines if this store may write to a vertex's row without copying it.
+   *
+   * @param vertex is the index of the vertex.
+   * @return returns true if the row and its chunk are this generation's.
+   */
+  private boolean isOwned(int vertex) {
+    int chunk = vertex >>> CHUNK_SHIFT;
+    return chunkOwners[chunk] == generation
+        && (rowOwners[chunk] == null || rowOwners[chunk][vertex & CHUNK_MASK] == generation);
+  }
+
+  /**
+   * Returns the row of a vertex for writing, first copying its chunk and row if they are shared
+   * with another store, and growing the row if it cannot hold the given number of neighbours.
+   *
+   * @param vertex is the index of the vertex.
+   * @param capacity is the number of neighbours the row must be able to hold.
+   * @return the row.
+   */
+  private int[] getEditableRow(int vertex, int capacity) {
+    int chunk = vertex >>> CHUNK_SHIFT;
+    int offset = vertex & CHUNK_MASK;
+    boolean owned = isOwned(vertex);
+
+    if (chunkOwners[chunk] != generation) {
+      rows[chunk] = rows[chunk].clone();
+      degrees[chunk] = degrees[chunk].clone();
+      rowOwners[chunk] = new int[rows[chunk].length];
+      chunkOwners[chunk] = generation;
+    }
+
+    // Double the capacity when the row is full.
+    int[] row = rows[chunk][offset];
+    if (!owned || row.length < capacity) {
+      row = Arrays.copyOf(row, row.length < capacity ? Math.max(4, row.length * 2) : row.length);
+      rows[chunk][offset] = row;
+      if (rowOwners[chunk] != null) {
+        rowOwners[chunk][offset] = generation;
+      }
+    }
+    return row;
+  }
+
+  @Override
+  public long heapBytes() {
+    long bytes =
+        Footprint.object(4 * Footprint.REFERENCE + 2 * Integer.BYTES + Long.BYTES)
+            + Footprint.array(rows.length, Footprint.REFERENCE)
+            + Footprint.array(degrees.length, Footprint.REFERENCE)
+            + Footprint.array(rowOwners.length, Footprint.REFERENCE)
+            + Footprint.array(chunkOwners.length, Integer.BYTES);
+    for (int chunk = 0; chunk < rows.length; chunk++) {
+      bytes += Footprint.array(rows[chunk].length, Footprint.REFERENCE);
+      bytes += Footprint.array(degrees[chunk].length, Integer.BYTES);
+      if (rowOwners[chunk] != null) {
+        bytes += Footprint.array(rowOwners[chunk].length, Integer.BYTES);
+      }
+      for (int[] row : rows[chunk]) {
+        // Every vertex without capacity shares one empty row.
+        if (row != EMPTY_ROW) {
+          bytes += Footprint.array(row.length, Integer.BYTES);
+        }
+      }
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,152 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * An out-of-core adjacency store in compressed sparse row form, where the offsets and neighbours
+ * live in memory-mapped segment files on local disk.
+ *
+ * <p>Nothing is held on the heap while building, as each row's next free slot is kept in the mapped
+ * offsets, and nothing but the mappings once built, so the adjacency is traversed page by page.
+ * The graph still holds its verticies on the heap, and reading a file holds every edge until the
+ * graph is built, so this does not yet open graphs larger than the heap.
+ */
+class MappedAdjacency implements AdjacencyStore {
+
+  // Instance field.
+  private final int vertexCount;
+  private final MappedSegments offsets;
+  private final MappedSegments targets;
+
+  private MappedAdjacency(int vertexCount, MappedSegments offsets, MappedSegments targets) {
+    this.vertexCount = vertexCount;
+    this.offsets = offsets;
+    this.targets = targets;
+  }
+
+  /**
+   * Creates a builder for a store with the given out-degrees, mapping new segment files in a
+   * temporary directory.
+   *
+   * @param degrees is the out-degree of each vertex.
+   * @return the builder.
+   */
+  static AdjacencyStore.Builder builder(int[] degrees) {
+    final int vertexCount = degrees.length;
+    final MappedSegments offsets;
+    final MappedSegments targets;
+
+    try {
+      Path directory = Files.createTempDirectory("graph-adjacency");
+      long edgeCount = 0;
+      for (int degree : degrees) {
+        edgeCount += degree;
+      }
+      offsets = new MappedSegments(directory, "offsets", vertexCount + 1L, Long.BYTES);
+      targets = new MappedSegments(directory, "targets", edgeCount, Integer.BYTES);
+      Files.deleteIfExists(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    // Lay out the offsets one vertex along, so the end of each row is its next free slot until
+    // it is full, and then the start of the next row.
+    long offset = 0;
+    offsets.putLong(0, 0);
+    for (int i = 0; i < vertexCount; i++) {
+      offsets.putLong(i + 1, offset);
+      offset += degrees[i];
+    }
+
+    return new AdjacencyStore.Builder() {
+      @Override
+      public void addEdge(int source, int destination) {
+        long slot = offsets.getLong(source + 1);
+        targets.putInt(slot, destination);
+        offsets.putLong(source + 1, slot + 1);
+      }
+
+      @Override
+      public AdjacencyStore build() {
+        MappedAdjacency store = new MappedAdjacency(vertexCount, offsets, targets);
+
+        // Sort each vertex's neighbours in place, one row at a time.
+        for (int i = 0; i < vertexCount; i++) {
+          int[] row = store.neighbours(i);
+          Arrays.sort(row);
+          long start = offsets.getLong(i);
+          for (int j = 0; j < row.length; j++) {
+            targets.putInt(start + j, row[j]);
+          }
+        }
+        return store;
+      }
+    };
+  }
+
+  @Override
+  public Representation representation() {
+    return Representation.MAPPED;
+  }
+
+  @Override
+  public int vertexCount() {
+    return vertexCount;
+  }
+
+  @Override
+  public long edgeCount() {
+    return offsets.getLong(vertexCount);
+  }
+
+  @Override
+  public int degree(int vertex) {
+    return (int) (offsets.getLong(vertex + 1) - offsets.getLong(vertex));
+  }
+
+  @Override
+  public int[] neighbours(int vertex) {
+    long start = offsets.getLong(vertex);
+    int[] row = new int[degree(vertex)];
+    for (int i = 0; i < row.length; i++) {
+      row[i] = targets.getInt(start + i);
+    }
+    return row;
+  }
+
+  @Override
+  public boolean hasEdge(int source, int destination) {
+    long low = offsets.getLong(source);
+    long high = offsets.getLong(source + 1) - 1;
+
+    // Binary search the mapped neighbours without copying them onto the heap.
+    while (low <= high) {
+      long middle = (low + high) >>> 1;
+      int value = targets.getInt(middle);
+      if (value < destination) {
+        low = middle + 1;
+      } else if (value > destination) {
+        high = middle - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public long heapBytes() {
+    return Footprint.object(Integer.BYTES + 2 * Footprint.REFERENCE)
+        + offsets.heapBytes()
+        + targets.heapBytes();
+  }
+
+  @Override
+  public long offHeapBytes() {
+    return offsets.mappedBytes() + targets.mappedBytes();
+  }
+}
@@ -0,0 +1,148 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A fixed length array of numbers that lives in memory-mapped segment files rather than on the
+ * heap.
+ *
+ * <p>A single mapping is limited to 2GB, so the array is split across as many segment files as it
+ * needs. The operating system pages segments in and out on demand, so only the parts being read
+ * are resident.
+ */
+class MappedSegments {
+
+  private static final int SEGMENT_BYTES = 1 << 28;
+
+  // Instance field.
+  private final MappedByteBuffer[] segments;
+  private final int elementBytes;
+  private final int elementsPerSegment;
+
+  /**
+   * Maps new segment files large enough to hold the given number of elements.
+   *
+   * @param directory is the directory to create the segment files in.
+   * @param name is the prefix of the segment file names.
+   * @param length is the number of elements.
+   * @param elementBytes is the width of each element, either {@link Integer#BYTES} or {@link
+   *     Long#BYTES}.
+   * @throws IOException if a segment file could not be created or mapped.
+   */
+  MappedSegments(Path directory, String name, long length, int elementBytes) throws IOException {
+    this.elementBytes = elementBytes;
+    this.elementsPerSegment = SEGMENT_BYTES / elementBytes;
+
+    int segmentCount = (int) Math.max(1, (length + elementsPerSegment - 1) / elementsPerSegment);
+    this.segments = new MappedByteBuffer[segmentCount];
+
+    for (int i = 0; i < segmentCount; i++) {
+      long remaining = length - (long) i * elementsPerSegment;
+      long bytes = Math.min(remaining, elementsPerSegment) * elementBytes;
+      Path file = directory.resolve(name + "-" + i + ".seg");
+
+      try (FileChannel channel =
+          FileChannel.open(
+              file,
+              StandardOpenOption.CREATE_NEW,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE)) {
+        // The mapping stays valid after the channel is closed.
+        segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(0, bytes));
+      }
+      release(file);
+    }
+  }
+
+  /**
+   * Reads an int element.
+   *
+   * @param index is the index of the element.
+   * @return the value of the element.
+   */
+  int getInt(long index) {
+    return segments[segment(index)].getInt(position(index));
+  }
+
+  /**
+   * Writes an int element.
+   *
+   * @param index is the index of the element.
+   * @param value is the value to write.
+   */
+  void putInt(long index, int value) {
+    segments[segment(index)].putInt(position(index), value);
+  }
+
+  /**
+   * Reads a long element.
+   *
+   * @param index is the index of the element.
+   * @return the value of the element.
+   */
+  long getLong(long index) {
+    return segments[segment(index)].getLong(position(index));
+  }
+
+  /**
+   * Writes a long element.
+   *
+   * @param index is the index of the element.
+   * @param value is the value to write.
+   */
+  void putLong(long index, long value) {
+    segments[segment(index)].putLong(position(index), value);
+  }
+
+  private int segment(long index) {
+    return (int) (index / elementsPerSegment);
+  }
+
+  private int position(long index) {
+    return (int) (index % elementsPerSegment) * elementBytes;
+  }
+
+  /**
+   * Unlinks a segment file that is already mapped, so it is cleaned up once the mapping is gone.
+   *
+   * @param file is the segment file.
+   */
+  private static void release(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // Some platforms refuse to delete mapped files, so leave it until exit.
+      file.toFile().deleteOnExit();
+    }
+  }
+
+  /**
+   * Estimates the heap the segments retain, which is only the mappings themselves.
+   *
+   * @return the estimated bytes.
+   */
+  long heapBytes() {
+    // A mapped buffer holds its position, limit, capacity, address and a few references.
+    return Footprint.object(Footprint.REFERENCE + 2 * Integer.BYTES)
+        + Footprint.array(segments.length, Footprint.REFERENCE)
+        + segments.length * Footprint.object(52);
+  }
+
+  /**
+   * Returns the bytes mapped from the segment files.
+   *
+   * @return the bytes.
+   */
+  long mappedBytes() {
+    long bytes = 0;
+    for (MappedByteBuffer segment : segments) {
+      bytes += segment.capacity();
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,134 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.List;
+
+/**
+ * The complete profile of a graph as a relation, as found together by one pass over its edges: its
+ * properties, how many edges break or keep them, and the first counterexample to each property it
+ * does not have.
+ *
+ * <p>Counterexamples are the first found in numerical order of their source vertex, then of their
+ * destination.
+ *
+ * @param <T> The type of each vertex.
+ */
+public class RelationProfile<T> extends RelationProperties {
+
+  // Instance fields.
+  private final int vertexCount;
+  private final long edgeCount;
+  private final int selfLoops;
+  private final long unmatchedEdges;
+  private final long reversedPairs;
+  private final T missingSelfLoop;
+  private final Edge<T> missingReverse;
+  private final Edge<T> reversedPair;
+  private final List<T> missingShortcut;
+
+  RelationProfile(
+      int vertexCount,
+      long edgeCount,
+      int selfLoops,
+      long unmatchedEdges,
+      long reversedPairs,
+      T missingSelfLoop,
+      Edge<T> missingReverse,
+      Edge<T> reversedPair,
+      List<T> missingShortcut) {
+    super(
+        missingSelfLoop == null,
+        missingReverse == null,
+        reversedPair == null,
+        missingShortcut == null);
+    this.vertexCount = vertexCount;
+    this.edgeCount = edgeCount;
+    this.selfLoops = selfLoops;
+    this.unmatchedEdges = unmatchedEdges;
+    this.reversedPairs = reversedPairs;
+    this.missingSelfLoop = missingSelfLoop;
+    this.missingReverse = missingReverse;
+    this.reversedPair = reversedPair;
+    this.missingShortcut = missingShortcut;
+  }
+
+  /**
+   * Returns the number of verticies in the graph.
+   *
+   * @return returns the number of verticies.
+   */
+  public int getVertexCount() {
+    return vertexCount;
+  }
+
+  /**
+   * Returns the number of edges in the graph.
+   *
+   * @return returns the number of edges.
+   */
+  public long getEdgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * Returns the number of edges from a vertex to itself.
+   *
+   * @return returns the number of self-loops.
+   */
+  public int getSelfLoops() {
+    return selfLoops;
+  }
+
+  /**
+   * Returns the number of edges between distinct verticies whose reversed edge is not in the graph.
+   *
+   * @return returns the number of asymmetric edges.
+   */
+  public long getUnmatchedEdges() {
+    return unmatchedEdges;
+  }
+
+  /**
+   * Returns the number of pairs of distinct verticies joined by an edge both ways.
+   *
+   * @return returns the number of reversed pairs.
+   */
+  public long getReversedPairs() {
+    return reversedPairs;
+  }
+
+  /**
+   * Returns the first vertex without an edge to itself.
+   *
+   * @return returns the vertex, or null if the graph is reflexive.
+   */
+  public T getMissingSelfLoop() {
+    return missingSelfLoop;
+  }
+
+  /**
+   * Returns the first edge whose reversed edge is not in the graph.
+   *
+   * @return returns the edge, or null if the graph is symmetric.
+   */
+  public Edge<T> getMissingReverse() {
+    return missingReverse;
+  }
+
+  /**
+   * Returns the first edge between distinct verticies whose reversed edge is also in the graph.
+   *
+   * @return returns the edge, or null if the graph is anti-symmetric.
+   */
+  public Edge<T> getReversedPair() {
+    return reversedPair;
+  }
+
+  /**
+   * Returns the first path of two edges whose first vertex has no edge to its last.
+   *
+   * @return returns the three verticies of the path, or null if the graph is transitive.
+   */
+  public List<T> getMissingShortcut() {
+    return missingShortcut;
+  }
+}
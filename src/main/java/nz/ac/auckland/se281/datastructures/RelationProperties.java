@@ -0,0 +1,64 @@
+package nz.ac.auckland.se281.datastructures;
+
+/** The properties of a graph as a relation, as found together by one pass over its edges. */
+public class RelationProperties {
+
+  // Instance field.
+  private final boolean reflexive;
+  private final boolean symmetric;
+  private final boolean antiSymmetric;
+  private final boolean transitive;
+
+  RelationProperties(
+      boolean reflexive, boolean symmetric, boolean antiSymmetric, boolean transitive) {
+    this.reflexive = reflexive;
+    this.symmetric = symmetric;
+    this.antiSymmetric = antiSymmetric;
+    this.transitive = transitive;
+  }
+
+  /**
+   * Determines if the graph is reflexive.
+   *
+   * @return returns true if the graph is reflexive.
+   */
+  public boolean isReflexive() {
+    return reflexive;
+  }
+
+  /**
+   * Determines if the graph is symmetric.
+   *
+   * @return returns true if the graph is symmetric.
+   */
+  public boolean isSymmetric() {
+    return symmetric;
+  }
+
+  /**
+   * Determines if the graph is anti-symmetric.
+   *
+   * @return returns true if the graph is anti-symmetric.
+   */
+  public boolean isAntiSymmetric() {
+    return antiSymmetric;
+  }
+
+  /**
+   * Determines if the graph is transitive.
+   *
+   * @return returns true if the graph is transitive.
+   */
+  public boolean isTransitive() {
+    return transitive;
+  }
+
+  /**
+   * Determines if the graph is an equivalence relation.
+   *
+   * @return returns true if the graph is reflexive, symmetric and transitive.
+   */
+  public boolean isEquivalence() {
+    return reflexive && symmetric && transitive;
+  }
+}
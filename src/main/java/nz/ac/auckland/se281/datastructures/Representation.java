@@ -0,0 +1,92 @@
+package nz.ac.auckland.se281.datastructures;
+
+/** The ways a {@link Graph} can hold its adjacency. */
+public enum Representation {
+  /** Compressed sparse rows held on the heap. */
+  CSR,
+  /** Compressed sparse rows held in memory-mapped files on local disk. */
+  MAPPED,
+  /** Gap and varint encoded neighbour lists held on the heap. */
+  COMPRESSED,
+  /** Sorted neighbour arrays with spare capacity held on the heap, which can be edited in place. */
+  LIST,
+  /**
+   * A bit for every pair of verticies held on the heap, for small or dense relations. A graph with
+   * more than {@value #MAX_MATRIX_VERTICIES} verticies is held as {@link #AUTO} chooses instead.
+   */
+  BIT_MATRIX,
+  /** Compressed sparse rows with a hash table of every edge, for verticies of high degree. */
+  HASH,
+  /** Whichever of the bit matrix, hash or compressed sparse rows suits the graph's size. */
+  AUTO;
+
+  /** The most verticies a bit matrix may have, so it takes at most 128MB. */
+  static final int MAX_MATRIX_VERTICIES = 1 << 15;
+
+  /** The bytes under which a bit matrix is chosen whatever its density, as it fits in cache. */
+  static final long SMALL_MATRIX_BYTES = 64 * 1024;
+
+  /** The average out-degree from which a hash table of the edges is worth its memory. */
+  static final long HASH_DEGREE = 32;
+
+  /**
+   * Chooses the representation that suits a graph of the given size.
+   *
+   * <p>A bit matrix is chosen when it is small enough to fit in cache, or no larger than the
+   * compressed sparse rows would be, which is when about one in 32 pairs of verticies are joined.
+   * Otherwise a hash table of the edges is added to the rows when the average vertex has enough
+   * neighbours that looking an edge up beats searching its source's row, and plain compressed
+   * sparse rows are chosen for everything else.
+   *
+   * @param vertexCount is the number of verticies.
+   * @param edgeCount is the number of edges.
+   * @return the chosen representation, which is never {@link #AUTO}.
+   */
+  public static Representation choose(int vertexCount, long edgeCount) {
+    if (vertexCount == 0) {
+      return CSR;
+    }
+
+    long matrixBytes = (long) vertexCount * ((vertexCount + 63) >>> 6) * Long.BYTES;
+    long rowsBytes = (vertexCount + 1L + edgeCount) * Integer.BYTES;
+    if (vertexCount <= MAX_MATRIX_VERTICIES
+        && (matrixBytes <= SMALL_MATRIX_BYTES || matrixBytes <= rowsBytes)) {
+      return BIT_MATRIX;
+    } else if (edgeCount >= HASH_DEGREE * vertexCount) {
+      return HASH;
+    }
+    return CSR;
+  }
+
+  /**
+   * Creates a builder for an adjacency store of this representation.
+   *
+   * @param degrees is the out-degree of each vertex.
+   * @return the builder.
+   */
+  AdjacencyStore.Builder builder(int[] degrees) {
+    switch (this) {
+      case MAPPED:
+        return MappedAdjacency.builder(degrees);
+      case COMPRESSED:
+        return CompressedAdjacency.builder(degrees);
+      case LIST:
+        return ListAdjacency.builder(degrees);
+      case HASH:
+        return HashAdjacency.builder(degrees);
+      case BIT_MATRIX:
+        if (degrees.length <= MAX_MATRIX_VERTICIES) {
+          return BitMatrixAdjacency.builder(degrees);
+        }
+        return AUTO.builder(degrees);
+      case AUTO:
+        long edgeCount = 0;
+        for (int degree : degrees) {
+          edgeCount += degree;
+        }
+        return choose(degrees.length, edgeCount).builder(degrees);
+      default:
+        return CsrAdjacency.builder(degrees);
+    }
+  }
+}
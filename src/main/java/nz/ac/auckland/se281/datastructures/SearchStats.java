@@ -0,0 +1,108 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the runs of each search over every graph, and the verticies they visited and edges they
+ * scanned.
+ *
+ * <p>A search tallies its own run, then adds the tally to these counters once it finishes, even if
+ * it was stopped part way, so searching costs no more than a field update per vertex. The counters
+ * can be read and reset from any thread.
+ */
+public final class SearchStats {
+
+  /** The searches that are counted. */
+  public enum Search {
+    ITERATIVE_BFS,
+    ITERATIVE_DFS,
+    RECURSIVE_BFS,
+    RECURSIVE_DFS
+  }
+
+  private static final LongAdder[] RUNS = adders();
+  private static final LongAdder[] VERTICIES = adders();
+  private static final LongAdder[] EDGES = adders();
+
+  private SearchStats() {}
+
+  /** The verticies visited and edges scanned by one run of a search so far. */
+  static final class Run {
+    private final Search search;
+    private long verticies;
+    private long edges;
+
+    Run(Search search) {
+      this.search = search;
+    }
+
+    /**
+     * Counts a vertex visited, and the edges leaving it that were scanned.
+     *
+     * @param degree is the number of edges leaving the vertex.
+     */
+    void visit(int degree) {
+      verticies++;
+      edges += degree;
+    }
+
+    /** Adds the run to the counters of its search. */
+    void finish() {
+      RUNS[search.ordinal()].increment();
+      VERTICIES[search.ordinal()].add(verticies);
+      EDGES[search.ordinal()].add(edges);
+    }
+  }
+
+  /**
+   * Returns how many times a search has run.
+   *
+   * @param search is the search.
+   * @return returns the number of runs.
+   */
+  public static long getRuns(Search search) {
+    return RUNS[search.ordinal()].sum();
+  }
+
+  /**
+   * Returns how many verticies a search has visited over all its runs.
+   *
+   * @param search is the search.
+   * @return returns the number of verticies visited.
+   */
+  public static long getVerticiesVisited(Search search) {
+    return VERTICIES[search.ordinal()].sum();
+  }
+
+  /**
+   * Returns how many edges a search has scanned over all its runs.
+   *
+   * @param search is the search.
+   * @return returns the number of edges scanned.
+   */
+  public static long getEdgesScanned(Search search) {
+    return EDGES[search.ordinal()].sum();
+  }
+
+  /** Resets every counter to zero. */
+  public static void reset() {
+    for (Search search : Search.values()) {
+      RUNS[search.ordinal()].reset();
+      VERTICIES[search.ordinal()].reset();
+      EDGES[search.ordinal()].reset();
+    }
+  }
+
+  /**
+   * Creates a counter for each search.
+   *
+   * @return returns the counters, indexed by the searches' ordinals.
+   */
+  private static LongAdder[] adders() {
+    LongAdder[] adders = new LongAdder[Search.values().length];
+    for (int i = 0; i < adders.length; i++) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+}
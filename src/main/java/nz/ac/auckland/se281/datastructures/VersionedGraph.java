@@ -0,0 +1,83 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.function.Function;
+
+/**
+ * A graph that is edited by publishing new versions, so it can be read from several threads while
+ * it is being edited.
+ *
+ * <p>Each version is a frozen {@link Graph}. A writer edits a {@link Graph#copy() copy} of the
+ * current version, which shares storage with it except for the parts that are edited, then
+ * freezes the copy and publishes it with one volatile write. Readers take the current version
+ * with one volatile read, never block, and never see a half-applied edit, as the version they hold
+ * never changes. Writers wait for each other.
+ *
+ * @param <T> The type of each vertex, that have a total ordering.
+ */
+public class VersionedGraph<T extends Comparable<T>> {
+
+  /**
+   * A published version of the graph.
+   *
+   * @param <T> The type of each vertex.
+   * @param number is the number of the version, counting up from 0.
+   * @param graph is the frozen graph.
+   */
+  public record Version<T extends Comparable<T>>(long number, Graph<T> graph) {}
+
+  // Instance field.
+  private volatile Version<T> current;
+
+  /**
+   * Creates a versioned graph, freezing the given graph as the first version.
+   *
+   * @param graph is the first version of the graph.
+   */
+  public VersionedGraph(Graph<T> graph) {
+    graph.freeze();
+    this.current = new Version<>(0, graph);
+  }
+
+  /**
+   * Returns the current version.
+   *
+   * @return returns the current version.
+   */
+  public Version<T> current() {
+    return current;
+  }
+
+  /**
+   * Returns the graph of the current version.
+   *
+   * @return returns the current frozen graph.
+   */
+  public Graph<T> graph() {
+    return current.graph();
+  }
+
+  /**
+   * Applies edits to a copy of the current version and publishes it as the next version. If the
+   * edits throw, nothing is published.
+   *
+   * @param <R> The type of the edits' result.
+   * @param edits is the edits to make to the copy.
+   * @return returns the result of the edits.
+   */
+  public synchronized <R> R update(Function<Graph<T>, R> edits) {
+    Graph<T> next = current.graph().copy();
+    R result = edits.apply(next);
+    publish(next);
+    return result;
+  }
+
+  /**
+   * Publishes a graph as the next version, replacing the current version entirely.
+   *
+   * @param graph is the next version of the graph, which is frozen.
+   */
+  public synchronized void publish(Graph<T> graph) {
+    graph.freeze();
+    current = new Version<>(current.number() + 1, graph);
+  }
+}
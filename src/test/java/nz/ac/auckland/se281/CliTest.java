@@ -93,9 +93,11 @@ public abstract class CliTest {
       System.out.println(NEW_LINE + "the System.err.print was :" + NEW_LINE + captureErrMessage);
     }
 
-    // If the test affects zero branches then remove from consideration
+    // If the test affects zero branches then remove from consideration, unless it ran no commands
     if (updateCount == 0) {
-      inputs.remove(testCount);
+      if (testCount < inputs.size()) {
+        inputs.remove(testCount);
+      }
     } else {
       testCount++;
     }
@@ -2,6 +2,41 @@ package nz.ac.auckland.se281;
 
 import static nz.ac.auckland.se281.Command.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import nz.ac.auckland.se281.datastructures.Edge;
+import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.RelationProperties;
+import nz.ac.auckland.se281.datastructures.Representation;
+import org.junit.After;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -265,10 +300,38 @@ public class MainTest {
   }
 
   public static class YourTests extends CliTest {
+    /** A directory under the test cases for the files a test writes, deleted after the test. */
+    private Path scratch;
+
     public YourTests() {
       super(Main.class);
     }
 
+    /**
+     * Creates the directory for the files this test writes. Test cases in it are opened by their
+     * path under the test cases, and are not listed with them, so other tests never see them.
+     *
+     * @return The directory.
+     * @throws IOException If the directory cannot be created.
+     */
+    private Path scratch() throws IOException {
+      scratch = Files.createTempDirectory(Path.of("testcases"), "tmp-");
+      return scratch;
+    }
+
+    @After
+    public void deleteScratch() throws IOException {
+      if (scratch == null) {
+        return;
+      }
+      try (Stream<Path> files = Files.list(scratch)) {
+        for (final Path file : files.collect(Collectors.toList())) {
+          Files.delete(file);
+        }
+      }
+      Files.delete(scratch);
+    }
+
     @Test
     public void F_TXT_iterative_BFS() throws Exception {
       runCommands(OPEN_FILE, "f.txt", GRAPH_SEARCH_IBFS);
@@ -699,5 +762,982 @@ public class MainTest {
       runCommands(OPEN_FILE, "useless-root.txt", GRAPH_SEARCH_RDFS);
       assertContains("[0, 1, 3, 4, 5, 2, 6]");
     }
+
+    @Test
+    public void TY_12_mapped_C_equivalence() throws Exception {
+      runCommands(OPEN_FILE_AS, "c.txt", "mapped", CHECK_EQUIVALENCE, COMPUTE_EQUIVALENCE, 1);
+      assertContains("Successfully opened graph from file c.txt");
+      assertContains("The graph is an equivalence relation");
+      assertContains("[1, 2, 3]");
+    }
+
+    @Test
+    public void TY_13_mapped_F_IDFS() throws Exception {
+      runCommands(OPEN_FILE_AS, "f.txt", "mapped", GRAPH_SEARCH_IDFS);
+      assertContains("Successfully opened graph from file f.txt");
+      assertContains(
+          "[1, 2, 5, 15, 22, 29, 10, 16, 23, 30, 3, 6, 13, 20, 27, 7, 12, 19, 26, 9, 14, 21, 28, 4,"
+              + " 8, 17, 24, 31, 11, 18, 25, 32]");
+    }
+
+    @Test
+    public void TY_14_unknown_representation() throws Exception {
+      runCommands(OPEN_FILE_AS, "a.txt", "paper", INFO);
+      assertContains("Error: representation 'paper' not found");
+      assertContains("Error: no valid file open");
+    }
+
+    @Test
+    public void TY_15_compressed_test_one_IBFS() throws Exception {
+      runCommands(OPEN_FILE_AS, "test-one.txt", "compressed", GRAPH_SEARCH_IBFS);
+      assertContains(
+          "[1, 2, 3, 4, 5, 10, 6, 7, 9, 8, 11, 15, 22, 29, 16, 23, 30, 13, 20, 27, 12, 19, 26, 14,"
+              + " 21, 28, 17, 24, 31, 18, 25, 32]");
+    }
+
+    @Test
+    public void TY_16_compressed_B_transitivity() throws Exception {
+      runCommands(OPEN_FILE_AS, "b.txt", "compressed", CHECK_TRANSITIVITY, CHECK_ANTISYMMETRY);
+      assertContains("The graph is NOT transitive");
+      assertContains("The graph is NOT antisymmetric");
+    }
+
+    @Test
+    public void TY_17_C_list_in_file_order() throws Exception {
+      System.setProperty(HeapUsage.REPORT_PROPERTY, "true");
+      try {
+        runCommands(OPEN_FILE_AS, "c.txt", "compressed", LIST_VERTICIES_EDGES);
+      } finally {
+        System.clearProperty(HeapUsage.REPORT_PROPERTY);
+      }
+      assertContains("Loading used");
+      assertContains("\t0" + NEW_LINE + "\t2" + NEW_LINE + "\t1" + NEW_LINE + "\t3" + NEW_LINE);
+      assertContains("\t0 -> 0" + NEW_LINE + "\t2 -> 1" + NEW_LINE + "\t2 -> 2" + NEW_LINE);
+    }
+
+    @Test
+    public void TY_18_cached_results_per_graph() throws Exception {
+      runCommands(
+          OPEN_FILE, "c.txt", CHECK_EQUIVALENCE, OPEN_FILE, "a.txt", CHECK_EQUIVALENCE, OPEN_FILE,
+          "c.txt", CHECK_EQUIVALENCE);
+      assertContains(
+          "The graph is an equivalence relation"
+              + NEW_LINE
+              + "graph-calculator> Successfully opened graph from file a.txt");
+      assertContains(
+          "The graph is NOT an equivalence relation"
+              + NEW_LINE
+              + "graph-calculator> Successfully opened graph from file c.txt");
+    }
+
+    @Test
+    public void TY_19_watch_unchanged_file() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", WATCH, CHECK_TRANSITIVITY, GRAPH_SEARCH_IBFS);
+      assertContains("Watching a.txt for changes");
+      assertContains("The graph is NOT transitive");
+      assertContains("[0, 1, 2, 3, 4, 5]");
+      assertDoesNotContain("Reloaded");
+    }
+
+    @Test
+    public void TY_20_edit_edges() throws Exception {
+      runCommands(
+          OPEN_FILE, "c.txt", REMOVE_EDGE, "3 2", CHECK_SYMMETRY, CHECK_ANTISYMMETRY, ADD_EDGE,
+          "3 2", CHECK_SYMMETRY, ADD_EDGE, "5 5", CHECK_REFLEXIVITY, REMOVE_EDGE, "7 7");
+      assertContains("Removed edge 3 -> 2");
+      assertContains("The graph is NOT symmetric");
+      assertContains("Added edge 3 -> 2" + NEW_LINE + "graph-calculator> The graph is symmetric");
+      assertContains("Added edge 5 -> 5" + NEW_LINE + "graph-calculator> The graph is reflexive");
+      assertContains("Edge 7 -> 7 is not in the graph");
+    }
+
+    @Test
+    public void TY_21_edit_invalid_vertex() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", ADD_EDGE, "0 x", ADD_EDGE, "0 1");
+      assertContains("Error: vertex 'x' is not a number");
+      assertContains("Edge 0 -> 1 is already in the graph");
+    }
+
+    @Test
+    public void TY_22_edit_transitivity() throws Exception {
+      runCommands(
+          OPEN_FILE, "a.txt", CHECK_TRANSITIVITY, ADD_EDGE, "0 3", ADD_EDGE, "0 4", ADD_EDGE,
+          "0 5", CHECK_TRANSITIVITY, REMOVE_EDGE, "1 5", CHECK_TRANSITIVITY);
+      assertContains("The graph is NOT transitive");
+      assertContains("Added edge 0 -> 5" + NEW_LINE + "graph-calculator> The graph is transitive");
+      assertContains("Removed edge 1 -> 5" + NEW_LINE + "graph-calculator> The graph is transitive");
+    }
+
+    @Test
+    public void TY_23_apply_patch() throws Exception {
+      runCommands(
+          OPEN_FILE, "a.txt", APPLY_PATCH, "patches/a-closure.txt", CHECK_TRANSITIVITY,
+          LIST_ROOT_VERTICIES, APPLY_PATCH, "missing.txt");
+      assertContains("Applied patches/a-closure.txt with 10 edges added and 1 removed");
+      assertContains("The graph is transitive");
+      assertContains("[6]");
+      assertContains("Error: file 'missing.txt' not found in `testcases` folder");
+    }
+
+    @Test
+    public void TY_24_background_jobs() throws Exception {
+      runCommands(
+          OPEN_FILE, "a.txt", CHECK_TRANSITIVITY, "&", WAIT, "1", JOBS, ADD_EDGE, "0 3 &", CANCEL,
+          "7");
+      assertContains("[1] Started 'CHECK_TRANSITIVITY' in the background");
+      assertContains("The graph is NOT transitive");
+      assertContains("There are no background jobs");
+      assertContains("Error: ADD_EDGE cannot run in the background");
+      assertContains("Error: there is no background job '7'");
+    }
+
+    @Test
+    public void TY_25_budget() throws Exception {
+      // Cached results are answered without running the command, so leave the cache out.
+      System.setProperty(ResultCache.DIRECTORY_PROPERTY, "");
+      try {
+        runCommands(
+            BUDGET, "0 1", OPEN_FILE, "c.txt", CHECK_TRANSITIVITY, GRAPH_SEARCH_IDFS, BUDGET,
+            "0 -1", BUDGET, "0 0", CHECK_TRANSITIVITY);
+      } finally {
+        System.clearProperty(ResultCache.DIRECTORY_PROPERTY);
+      }
+      assertContains("Each command is now limited to 1 verticies");
+      assertContains(
+          "The result is inconclusive, as the command ran out of its step budget of 1 verticies");
+      assertContains("Showing the first 0 verticies found, as the search ran out of its");
+      assertContains("Error: '-1' is not a number of milliseconds or verticies");
+      assertContains(
+          "Commands are no longer limited" + NEW_LINE + "graph-calculator> The graph is transitive");
+    }
+
+    @Test
+    public void TY_26_pipelined_checks() throws Exception {
+      runCommands(
+          OPEN_FILE,
+          "c.txt; check-reflexivity; check-transitivity; check-equivalence; list-root-verticies");
+      assertContains(
+          "The graph is reflexive"
+              + NEW_LINE
+              + "The graph is transitive"
+              + NEW_LINE
+              + "The graph is an equivalence relation"
+              + NEW_LINE
+              + "[0, 1]");
+    }
+
+    @Test
+    public void TY_27_relation_profile() throws Exception {
+      runCommands(OPEN_FILE, "b.txt", RELATION_PROFILE);
+      assertContains(
+          "The graph has 7 verticies and 17 edges, with 6 self-loops, 1 edges without their"
+              + " reverse and 5 pairs of verticies joined both ways");
+      assertContains("The graph is NOT reflexive, as there is no edge 6 -> 6");
+      assertContains("The graph is NOT antisymmetric, as there are edges 0 -> 1 and 1 -> 0");
+      assertContains(
+          "The graph is NOT transitive, as there are edges 0 -> 1 and 1 -> 2 but no edge 0 -> 2");
+    }
+
+    @Test
+    public void TY_28_analyse_all() throws Exception {
+      runCommands(ANALYSE_ALL, "check-reflexivity,list-root-verticies", ANALYSE_ALL, "open-file");
+      assertContains(
+          "== a.txt =="
+              + NEW_LINE
+              + "The graph is NOT reflexive"
+              + NEW_LINE
+              + "[0]"
+              + NEW_LINE
+              + "== b.txt =="
+              + NEW_LINE
+              + "The graph is NOT reflexive"
+              + NEW_LINE
+              + "[6]"
+              + NEW_LINE
+              + "== c.txt ==");
+      // The totals depend on which test cases there are, so only check every one was analysed.
+      assertContains("Analysed " + GraphCalculator.listTestcases().size() + " files with ");
+      assertContains("Error: 'open-file' cannot run on every test case");
+      assertDoesNotContain("Error: no valid file open", true);
+    }
+
+    @Test
+    public void TY_29_generated_graphs() throws Exception {
+      final Path directory = scratch();
+      new GraphGenerator(GraphGenerator.Family.CLOSURE, 2000, 6, 281)
+          .write(directory.resolve("closure.txt"), GraphGenerator.Format.DOT);
+      new GraphGenerator(GraphGenerator.Family.EQUIVALENCE_UNIFORM, 2000, 10, 281)
+          .write(directory.resolve("classes.txt"), GraphGenerator.Format.DOT);
+      runCommands(
+          OPEN_FILE,
+          directory.getFileName() + "/closure.txt",
+          CHECK_TRANSITIVITY,
+          CHECK_ANTISYMMETRY,
+          OPEN_FILE,
+          directory.getFileName() + "/classes.txt",
+          CHECK_EQUIVALENCE);
+      assertContains("The graph is transitive" + NEW_LINE);
+      assertContains("The graph is antisymmetric" + NEW_LINE);
+      assertContains("The graph is an equivalence relation" + NEW_LINE);
+    }
+
+    @Test
+    public void TY_30_stats() throws Exception {
+      // Cached results are answered without searching, so leave the cache out.
+      System.setProperty(ResultCache.DIRECTORY_PROPERTY, "");
+      try {
+        runCommands(RESET_STATS, OPEN_FILE, "a.txt", GRAPH_SEARCH_IBFS, GRAPH_SEARCH_RDFS, STATS);
+      } finally {
+        System.clearProperty(ResultCache.DIRECTORY_PROPERTY);
+      }
+      assertContains("Statistics have been reset");
+      assertContains("\tPARSE: 1 runs, mean ");
+      assertContains("\tINDEX: 1 runs, mean ");
+      assertContains("\tOPEN_FILE: 1 runs, mean ");
+      assertContains("\tGRAPH_SEARCH_IBFS: 1 runs, mean ");
+      assertContains("\tGRAPH_SEARCH_RDFS: 1 runs, mean ");
+      assertContains(
+          "\tITERATIVE_BFS: 1 runs, 6 verticies visited and 5 edges scanned (6 and 5 per run)");
+      assertContains(
+          "\tRECURSIVE_DFS: 1 runs, 6 verticies visited and 5 edges scanned (6 and 5 per run)");
+    }
+
+    @Test
+    public void TY_31_flight_recorder_events() throws Exception {
+      final Path dump = Files.createTempFile("graph-calculator", ".jfr");
+      // Cached results are answered without running the command, so leave the cache out.
+      System.setProperty(ResultCache.DIRECTORY_PROPERTY, "");
+      try (Recording recording = new Recording()) {
+        for (final String event : List.of("Parse", "Index", "PropertyCheck", "Traversal")) {
+          recording.enable("nz.ac.auckland.se281." + event);
+        }
+        recording.start();
+        runCommands(OPEN_FILE, "a.txt", CHECK_REFLEXIVITY, GRAPH_SEARCH_IBFS);
+        recording.stop();
+        recording.dump(dump);
+
+        final List<String> events = new ArrayList<>();
+        for (final RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+          events.add(
+              event.getEventType().getName()
+                  + " "
+                  + event.getString("file")
+                  + " "
+                  + event.getInt("verticies")
+                  + " "
+                  + event.getLong("edges")
+                  + " "
+                  + event.getString("outcome"));
+        }
+        Assert.assertEquals(
+            List.of(
+                "nz.ac.auckland.se281.Parse a.txt 6 5 parsed",
+                "nz.ac.auckland.se281.Index a.txt 6 5 built",
+                "nz.ac.auckland.se281.PropertyCheck a.txt 6 5 does not hold",
+                "nz.ac.auckland.se281.Traversal a.txt 6 5 complete"),
+            events);
+      } finally {
+        System.clearProperty(ResultCache.DIRECTORY_PROPERTY);
+        Files.deleteIfExists(dump);
+      }
+    }
+
+    @Test
+    public void TY_32_prometheus_metrics() throws Exception {
+      final MetricsServer metrics = new MetricsServer(0);
+      final String scraped;
+      try {
+        runCommands(OPEN_FILE, "a.txt", CHECK_REFLEXIVITY, CHECK_REFLEXIVITY);
+        final HttpResponse<String> response =
+            HttpClient.newHttpClient()
+                .send(
+                    HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + metrics.getPort() + "/metrics"))
+                        .build(),
+                    HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        scraped = response.body();
+      } finally {
+        metrics.stop();
+      }
+      Assert.assertTrue(scraped.contains("# TYPE graph_calculator_commands_total counter\n"));
+      Assert.assertTrue(
+          scraped.contains("graph_calculator_commands_total{command=\"OPEN_FILE\"} "));
+      Assert.assertTrue(
+          scraped.contains(
+              "graph_calculator_command_duration_seconds_bucket{command=\"CHECK_REFLEXIVITY\","
+                  + "le=\"+Inf\"} "));
+      Assert.assertTrue(scraped.contains("graph_calculator_graphs_loaded_total "));
+      Assert.assertTrue(scraped.contains("graph_calculator_verticies_resident "));
+      Assert.assertTrue(scraped.contains("graph_calculator_result_cache_hit_ratio "));
+    }
+
+    @Test
+    public void TY_33_heap_footprint() throws Exception {
+      runCommands(OPEN_FILE_AS, "a.txt", "csr", INFO);
+      assertContains(
+          "File name: a.txt"
+              + NEW_LINE
+              + "Adjacency held as csr"
+              + NEW_LINE
+              + "Heap footprint: 840 B retained, 168.0 B per edge"
+              + NEW_LINE
+              + "\tvertex values: 288 B"
+              + NEW_LINE
+              + "\tvertex list: 64 B"
+              + NEW_LINE
+              + "\tvertex index: 320 B"
+              + NEW_LINE
+              + "\tvertex order: 40 B"
+              + NEW_LINE
+              + "\tedge order: 16 B"
+              + NEW_LINE
+              + "\tadjacency: 112 B"
+              + NEW_LINE
+              + "Reading the file also held 864 B of verticies, edges and Edge objects");
+    }
+
+    @Test
+    public void TY_34_auto_representation() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", INFO, OPEN_FILE, "test-100k.txt", INFO);
+      assertContains("File name: a.txt" + NEW_LINE + "Adjacency held as bit-matrix");
+      assertContains("File name: test-100k.txt" + NEW_LINE + "Adjacency held as csr");
+    }
+
+    @Test
+    public void TY_35_bit_matrix_and_hash_C_equivalence() throws Exception {
+      runCommands(
+          OPEN_FILE_AS,
+          "c.txt",
+          "bit-matrix",
+          CHECK_EQUIVALENCE,
+          OPEN_FILE_AS,
+          "b.txt",
+          "hash",
+          CHECK_TRANSITIVITY);
+      assertContains("The graph is an equivalence relation");
+      assertContains("The graph is NOT transitive");
+    }
+
+    @Test
+    public void TY_36_bit_matrix_matches_csr() throws Exception {
+      final Random random = new Random(281);
+      for (int graph = 0; graph < 200; graph++) {
+        // Sizes either side of a word boundary, with equivalences and partial orders among them.
+        final int size = random.nextInt(150);
+        final double density = random.nextDouble();
+        final int classes = 1 + random.nextInt(8);
+        final boolean[][] matrix = new boolean[size][size];
+        for (int source = 0; source < size; source++) {
+          for (int destination = 0; destination < size; destination++) {
+            switch (graph % 3) {
+              case 0:
+                matrix[source][destination] = random.nextDouble() < density;
+                break;
+              case 1:
+                matrix[source][destination] =
+                    source % classes == destination % classes && random.nextDouble() < 0.999;
+                break;
+              default:
+                matrix[source][destination] =
+                    source <= destination && random.nextDouble() < density / 8;
+            }
+          }
+        }
+        for (int via = 0; via < size && graph % 6 == 2; via++) {
+          for (int source = 0; source < size; source++) {
+            for (int destination = 0; destination < size && matrix[source][via]; destination++) {
+              matrix[source][destination] |= matrix[via][destination];
+            }
+          }
+        }
+
+        final Set<Integer> verticies = new LinkedHashSet<>();
+        final Set<Edge<Integer>> edges = new LinkedHashSet<>();
+        for (int source = 0; source < size; source++) {
+          verticies.add(source);
+          for (int destination = 0; destination < size; destination++) {
+            if (matrix[source][destination]) {
+              edges.add(new Edge<>(source, destination));
+            }
+          }
+        }
+        final Graph<Integer> csr = new Graph<>(verticies, edges, Representation.CSR);
+        final Graph<Integer> bitMatrix = new Graph<>(verticies, edges, Representation.BIT_MATRIX);
+
+        final String message = "graph " + graph + " of " + size + " verticies";
+        Assert.assertEquals(message, csr.isReflexive(), bitMatrix.isReflexive());
+        Assert.assertEquals(message, csr.isSymmetric(), bitMatrix.isSymmetric());
+        Assert.assertEquals(message, csr.isAntiSymmetric(), bitMatrix.isAntiSymmetric());
+        Assert.assertEquals(message, csr.isTransitive(), bitMatrix.isTransitive());
+        Assert.assertEquals(
+            message, csr.iterativeBreadthFirstSearch(), bitMatrix.iterativeBreadthFirstSearch());
+      }
+    }
+
+    @Test
+    public void TY_37_failed_open_keeps_graph() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", OPEN_FILE, "missing.txt", INFO, LIST_ROOT_VERTICIES);
+      assertContains("Error: file 'missing.txt' not found");
+      assertContains("File name: a.txt");
+      assertDoesNotContain("Loading used");
+      assertDoesNotContain("Error: no valid file open");
+    }
+
+    @Test
+    public void TY_38_disk_cache_is_opt_in() throws Exception {
+      final Path directory = Files.createTempDirectory("graph-calculator-cache");
+      System.setProperty(ResultCache.DIRECTORY_PROPERTY, directory.toString());
+      try {
+        runCommands(OPEN_FILE, "c.txt", CHECK_EQUIVALENCE);
+        try (Stream<Path> files = Files.list(directory)) {
+          final List<Path> cached = files.collect(Collectors.toList());
+          Assert.assertEquals(1L, (long) cached.size());
+          Assert.assertTrue(
+              cached.get(0).toString(),
+              cached.get(0).getFileName().toString().endsWith("-v2.properties"));
+          Files.delete(cached.get(0));
+        }
+      } finally {
+        System.clearProperty(ResultCache.DIRECTORY_PROPERTY);
+        Files.deleteIfExists(directory);
+      }
+      assertContains("The graph is an equivalence relation");
+    }
+
+    @Test
+    public void TY_39_watch_reloads_changed_file() throws Exception {
+      final Path directory = scratch();
+      final Path file = directory.resolve("watched.txt");
+      Files.copy(Path.of("testcases", "c.txt"), file);
+      final GraphCalculator calculator =
+          new GraphCalculator(directory.getFileName() + "/watched.txt");
+      calculator.watch();
+      calculator.printEquivalence();
+
+      // The same verticies, so only the edge that went is applied.
+      rewrite(file, "digraph testgraph {\n 0 -> 0;\n 1 -> 1;\n 2 -> 2;\n 2 -> 3;\n 3 -> 3;\n}\n");
+      awaitReload(calculator, "edges added");
+      calculator.printEquivalence();
+      calculator.printAntiSymmetry();
+
+      // A new vertex renumbers the others, so the graph is rebuilt.
+      rewrite(file, "digraph testgraph {\n 0 -> 1;\n 1 -> 2;\n 2 -> 7;\n}\n");
+      awaitReload(calculator, "rebuilding");
+      calculator.printIterativeBreadthFirstSearch();
+      calculator.stopWatching();
+      assertContains("The graph is an equivalence relation");
+      assertContains("watched.txt with 0 edges added and 5 removed");
+      assertContains("The graph is NOT an equivalence relation");
+      assertContains("The graph is antisymmetric");
+      assertContains("watched.txt, rebuilding the graph as its verticies changed");
+      assertContains("[0, 1, 2, 7]");
+    }
+
+    /**
+     * Replaces a test case in one step, as editors save, so it is never read half written.
+     *
+     * @param file The test case.
+     * @param contents The new contents.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void rewrite(final Path file, final String contents) throws IOException {
+      final Path temporary = Files.createTempFile(file.getParent(), "saving", ".tmp");
+      Files.writeString(temporary, contents);
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Applies changes to the watched file until the reload message appears, as the watcher sees
+     * them a little after they are saved.
+     *
+     * @param calculator The calculator watching the file.
+     * @param message Part of the reload message to wait for.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private void awaitReload(final GraphCalculator calculator, final String message)
+        throws InterruptedException {
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (!getCaptureOut().contains(message) && System.nanoTime() < deadline) {
+        calculator.reloadIfChanged();
+        Thread.sleep(20);
+      }
+    }
+
+    @Test
+    public void TY_40_server_sessions_share_graph() throws Exception {
+      final GraphServer server = new GraphServer(0);
+      final Thread serving =
+          new Thread(
+              () -> {
+                try {
+                  server.start();
+                } catch (final IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              });
+      serving.start();
+      try {
+        while (server.getPort() < 0) {
+          Thread.sleep(10);
+        }
+        try (Socket first = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+            Socket second = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+          send(first, null);
+          send(second, null);
+          send(first, "open-file c.txt");
+          send(second, "open-file c.txt");
+          Assert.assertEquals(1L, (long) server.getGraphs().size());
+
+          // Each session sees the other's edits, and only one of them removes an edge.
+          Assert.assertTrue(send(first, "remove-edge 3 2").contains("Removed edge 3 -> 2"));
+          Assert.assertTrue(
+              send(second, "remove-edge 3 2").contains("Edge 3 -> 2 is not in the graph"));
+          Assert.assertTrue(send(second, "check-symmetry").contains("is NOT symmetric"));
+          Assert.assertTrue(send(second, "add-edge 3 2").contains("Added edge 3 -> 2"));
+          Assert.assertTrue(send(first, "check-symmetry").contains("is symmetric"));
+
+          // The graph is forgotten once neither session has it open.
+          send(first, "open-file a.txt");
+          Assert.assertEquals(2L, (long) server.getGraphs().size());
+          // Exiting reads up to the end of the connection, which closes after the session ends.
+          send(second, "exit");
+          Assert.assertEquals(1L, (long) server.getGraphs().size());
+          send(first, "exit");
+          Assert.assertEquals(0L, (long) server.getGraphs().size());
+        }
+      } finally {
+        server.stop();
+        serving.join();
+      }
+    }
+
+    /**
+     * Sends a command to a session of a server, and reads its output up to the next prompt.
+     *
+     * @param session The session's connection.
+     * @param command The command, or null to only read the greeting.
+     * @return The output of the command.
+     * @throws IOException If the connection fails.
+     */
+    private static String send(final Socket session, final String command) throws IOException {
+      if (command != null) {
+        session.getOutputStream().write((command + "\n").getBytes(StandardCharsets.UTF_8));
+        session.getOutputStream().flush();
+      }
+
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      int read;
+      while ((read = session.getInputStream().read()) >= 0) {
+        output.write(read);
+        if (output.toString(StandardCharsets.UTF_8).endsWith(Main.COMMAND_PREFIX)) {
+          break;
+        }
+      }
+      return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void TY_41_finished_jobs_are_capped() throws Exception {
+      final BackgroundJobs jobs = new BackgroundJobs();
+      final int submitted = BackgroundJobs.MAX_FINISHED + 2;
+      final CountDownLatch finished = new CountDownLatch(submitted);
+      for (int i = 1; i <= submitted; i++) {
+        jobs.submit("job " + i, finished::countDown);
+      }
+      finished.await();
+      // Let the last jobs' futures complete after their tasks return.
+      Thread.sleep(200);
+
+      jobs.submit("last", () -> {});
+      jobs.waitFor("1");
+      jobs.waitFor("4");
+      assertContains("[1] Forgot the output of 'job 1', as only 16 finished jobs are kept");
+      assertContains("[2] Forgot the output of 'job 2'");
+      assertContains("Error: there is no background job '1'");
+      // The last job may also have finished, which forgets job 3 as well, but never job 4.
+      assertDoesNotContain("Error: there is no background job '4'");
+    }
+
+    @Test
+    public void TY_42_time_budget_stops_dense_verticies() throws Exception {
+      // Fewer verticies than steps between clock reads, but each compares hundreds of neighbours.
+      final Path directory = scratch();
+      System.setProperty(ResultCache.DIRECTORY_PROPERTY, "");
+      try {
+        new GraphGenerator(GraphGenerator.Family.EQUIVALENCE_FIXED, 250, 250, 281)
+            .write(directory.resolve("dense.txt"), GraphGenerator.Format.DOT);
+        runCommands(
+            OPEN_FILE_AS,
+            directory.getFileName() + "/dense.txt",
+            "csr",
+            BUDGET,
+            "1 0",
+            CHECK_TRANSITIVITY);
+      } finally {
+        System.clearProperty(ResultCache.DIRECTORY_PROPERTY);
+      }
+      assertContains(
+          "The result is inconclusive, as the command ran out of its time budget of 1 ms");
+    }
+
+    @Test
+    public void TY_43_numbers_ignore_default_locale() throws Exception {
+      final Locale locale = Locale.getDefault();
+      // German writes 172.8 as 172,8, which would change the output with the user's settings.
+      Locale.setDefault(Locale.GERMANY);
+      try {
+        runCommands(OPEN_FILE, "a.txt", INFO);
+      } finally {
+        Locale.setDefault(locale);
+      }
+      assertContains("Heap footprint: 864 B retained, 172.8 B per edge");
+    }
+
+    @Test
+    public void TY_44_hash_without_edges() throws Exception {
+      runCommands(OPEN_FILE_AS, "l.txt", "hash", REMOVE_EDGE, "1 2", CHECK_TRANSITIVITY, INFO);
+      assertContains("Edge 1 -> 2 is not in the graph");
+      assertContains("The graph is transitive");
+      assertContains("Adjacency held as hash");
+    }
+
+    @Test
+    public void TY_45_analysis_survives_broken_file() throws Exception {
+      final Path directory = scratch();
+      Files.writeString(directory.resolve("broken.txt"), "digraph testgraph {\n 0 -> \n");
+      new BatchAnalysis(
+              List.of(CHECK_EQUIVALENCE), (calculator, command) -> calculator.printEquivalence(), 2)
+          .run(List.of("a.txt", directory.getFileName() + "/broken.txt", "c.txt"));
+      assertContains(
+          "== "
+              + directory.getFileName()
+              + "/broken.txt =="
+              + NEW_LINE
+              + "Error: could not analyse '"
+              + directory.getFileName()
+              + "/broken.txt': ");
+      assertContains("== c.txt ==" + NEW_LINE + "The graph is an equivalence relation" + NEW_LINE);
+      assertContains("Analysed 3 files with ");
+      assertContains("1 of the files could not be analysed");
+    }
+
+    @Test
+    public void TY_46_fused_properties_match_checks_after_edits() throws Exception {
+      final Random random = new Random(281);
+      for (final String filename : GraphCalculator.listTestcases()) {
+        final Graph<String> graph = new GraphCalculator(filename).getGraph().copy();
+        final List<String> verticies = graph.getVerticesInInsertionOrder();
+        final List<Edge<String>> edges = new ArrayList<>(graph.getEdgesInInsertionOrder());
+        for (int edit = 1; edit <= 40 && !verticies.isEmpty(); edit++) {
+          if (!edges.isEmpty() && random.nextBoolean()) {
+            // Swap the removed edge with the last, so removing it from the list is quick.
+            final int index = random.nextInt(edges.size());
+            final Edge<String> edge = edges.set(index, edges.get(edges.size() - 1));
+            edges.remove(edges.size() - 1);
+            graph.removeEdge(edge.getSource(), edge.getDestination());
+          } else {
+            final String source = verticies.get(random.nextInt(verticies.size()));
+            // Self-loops often enough to make some graphs reflexive again.
+            final String destination =
+                random.nextInt(4) == 0 ? source : verticies.get(random.nextInt(verticies.size()));
+            if (graph.addEdge(source, destination)) {
+              edges.add(new Edge<>(source, destination));
+            }
+          }
+
+          if (edit % 8 == 0) {
+            // Alternate which answer is found first, as each may leave counters for the other.
+            assertSameProperties(filename + " after " + edit + " edits", graph, edit % 16 == 0);
+          }
+        }
+      }
+    }
+
+    /**
+     * Checks that the fused properties of an edited graph, and its individual checks, match those
+     * of the same graph built from scratch.
+     *
+     * @param where The graph and edits, to report with a mismatch.
+     * @param graph The edited graph.
+     * @param fusedFirst If the fused properties are found before the individual checks.
+     */
+    private static void assertSameProperties(
+        final String where, final Graph<String> graph, final boolean fusedFirst) {
+      final Graph<String> rebuilt =
+          new Graph<>(
+              new LinkedHashSet<>(graph.getVerticesInInsertionOrder()),
+              new LinkedHashSet<>(graph.getEdgesInInsertionOrder()),
+              Representation.CSR);
+      final boolean[] expected = {
+        rebuilt.isReflexive(),
+        rebuilt.isSymmetric(),
+        rebuilt.isAntiSymmetric(),
+        rebuilt.isTransitive(),
+        rebuilt.isEquivalence()
+      };
+
+      RelationProperties fused = fusedFirst ? graph.getRelationProperties() : null;
+      final boolean[] individual = {
+        graph.isReflexive(),
+        graph.isSymmetric(),
+        graph.isAntiSymmetric(),
+        graph.isTransitive(),
+        graph.isEquivalence()
+      };
+      if (!fusedFirst) {
+        fused = graph.getRelationProperties();
+      }
+
+      Assert.assertArrayEquals(where, expected, individual);
+      Assert.assertArrayEquals(
+          where,
+          expected,
+          new boolean[] {
+            fused.isReflexive(),
+            fused.isSymmetric(),
+            fused.isAntiSymmetric(),
+            fused.isTransitive(),
+            fused.isEquivalence()
+          });
+    }
+
+    @Test
+    public void TY_47_pipelined_checks_match_separate_lines_after_edits() throws Exception {
+      final Random random = new Random(281);
+      final String checks =
+          "check-reflexivity; check-symmetry; check-antisymmetry; check-transitivity;"
+              + " check-equivalence";
+      for (final String filename : GraphCalculator.listTestcases()) {
+        final List<String> verticies =
+            new GraphCalculator(filename).getGraph().getVerticesInInsertionOrder();
+        final StringBuilder edits = new StringBuilder("open-file " + filename);
+        for (int edit = 0; edit < 20 && !verticies.isEmpty(); edit++) {
+          final String source = verticies.get(random.nextInt(verticies.size()));
+          final String destination =
+              random.nextInt(4) == 0 ? source : verticies.get(random.nextInt(verticies.size()));
+          edits
+              .append(NEW_LINE)
+              .append(random.nextBoolean() ? "add-edge " : "remove-edge ")
+              .append(source)
+              .append(' ')
+              .append(destination);
+        }
+
+        // Separate sessions, so neither answers from the other's cached results.
+        final String pipelined = runSession(edits + NEW_LINE + checks);
+        final String separate = runSession(edits + NEW_LINE + checks.replace("; ", NEW_LINE));
+        Assert.assertEquals(filename, separate, pipelined);
+        Assert.assertTrue(filename, pipelined.contains("The graph is"));
+      }
+    }
+
+    /**
+     * Runs a session of the command line on its own, capturing what it prints.
+     *
+     * @param script The lines of the session, which then exits.
+     * @return What the session printed, without its prompts.
+     */
+    private static String runSession(final String script) {
+      final PrintStream console = System.out;
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+      try {
+        new Main(new Scanner(script + NEW_LINE + "exit")).start();
+      } finally {
+        System.setOut(console);
+      }
+      return output.toString(StandardCharsets.UTF_8).replace(Main.COMMAND_PREFIX, "");
+    }
+
+    @Test
+    public void TY_48_pipelined_checks_follow_watched_file() throws Exception {
+      final Path directory = scratch();
+      final Path file = directory.resolve("watched.txt");
+      Files.copy(Path.of("testcases", "c.txt"), file);
+      final String checks = "check-equivalence; check-antisymmetry";
+      final GraphServer server = new GraphServer(0);
+      final Thread serving =
+          new Thread(
+              () -> {
+                try {
+                  server.start();
+                } catch (final IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              });
+      serving.start();
+      try {
+        while (server.getPort() < 0) {
+          Thread.sleep(10);
+        }
+        try (Socket session = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+          send(session, null);
+          send(session, "open-file " + directory.getFileName() + "/watched.txt");
+          send(session, "watch");
+          Assert.assertTrue(send(session, checks).contains("is an equivalence relation"));
+
+          // The same verticies, with an edge gone, so the graph is no longer symmetric.
+          rewrite(
+              file, "digraph testgraph {\n 0 -> 0;\n 1 -> 1;\n 2 -> 2;\n 2 -> 3;\n 3 -> 3;\n}\n");
+          String output = "";
+          final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+          while (!output.contains("Reloaded") && System.nanoTime() < deadline) {
+            output = send(session, checks);
+          }
+          // The line that reloads the file answers its checks from the reloaded graph.
+          Assert.assertTrue(output, output.contains("Reloaded"));
+          Assert.assertTrue(output, output.contains("is NOT an equivalence relation"));
+          Assert.assertTrue(output, output.contains("is antisymmetric"));
+          send(session, "exit");
+        }
+      } finally {
+        server.stop();
+        serving.join();
+      }
+    }
+
+    @Test
+    public void TY_49_edges_listed_in_given_order_after_edits() throws Exception {
+      final Random random = new Random(28);
+      final List<String> verticies = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        verticies.add(Integer.toString(i));
+      }
+      final List<Edge<String>> shuffled = new ArrayList<>();
+      for (int i = 0; i < 60; i++) {
+        shuffled.add(
+            new Edge<>(verticies.get(random.nextInt(20)), verticies.get(random.nextInt(20))));
+      }
+      for (final Representation representation : Representation.values()) {
+        if (representation == Representation.MAPPED) {
+          // Mapped graphs list their edges in sorted order instead.
+          continue;
+        }
+        final Set<Edge<String>> expected = new LinkedHashSet<>(shuffled);
+        final Graph<String> graph =
+            new Graph<>(new LinkedHashSet<>(verticies), expected, representation);
+        Assert.assertEquals(
+            representation.toString(), List.copyOf(expected), graph.getEdgesInInsertionOrder());
+
+        Graph<String> published = graph.copy();
+        published.freeze();
+        List<Edge<String>> publishedEdges = published.getEdgesInInsertionOrder();
+        for (int edit = 1; edit <= 60; edit++) {
+          final String source = verticies.get(random.nextInt(verticies.size()));
+          final String destination = verticies.get(random.nextInt(verticies.size()));
+          final Edge<String> edge = new Edge<>(source, destination);
+          if (random.nextBoolean()) {
+            Assert.assertEquals(expected.remove(edge), graph.removeEdge(source, destination));
+          } else if (graph.addEdge(source, destination)) {
+            expected.add(edge);
+          }
+          if (edit % 20 == 0) {
+            final String vertex = Integer.toString(100 + edit);
+            graph.addVertex(vertex);
+            verticies.add(vertex);
+          }
+          if (edit % 10 == 0) {
+            // Publishing a copy leaves both the graph and the earlier copies listed as they were.
+            Assert.assertEquals(publishedEdges, published.getEdgesInInsertionOrder());
+            published = graph.copy();
+            published.freeze();
+            publishedEdges = published.getEdgesInInsertionOrder();
+          }
+          Assert.assertEquals(
+              representation + " after " + edit + " edits",
+              List.copyOf(expected),
+              graph.getEdgesInInsertionOrder());
+        }
+        verticies.subList(20, verticies.size()).clear();
+      }
+    }
+
+    @Test
+    public void TY_50_mapped_edges_held_off_heap() throws Exception {
+      final Path directory = scratch();
+      Files.writeString(
+          directory.resolve("reversed.txt"),
+          "digraph testgraph {\n 2 -> 1;\n 1 -> 0;\n 2 -> 0;\n}\n");
+      runCommands(OPEN_FILE_AS, directory.getFileName() + "/reversed.txt", "mapped", INFO);
+      // Only the empty array of edges added later is held, rather than the order of each edge.
+      assertContains("\tedge order: 16 B");
+      assertContains("44 B mapped outside the heap");
+
+      final Graph<String> graph =
+          new Graph<>(
+              new LinkedHashSet<>(List.of("2", "1", "0")),
+              new LinkedHashSet<>(
+                  List.of(new Edge<>("2", "1"), new Edge<>("1", "0"), new Edge<>("2", "0"))),
+              Representation.MAPPED);
+      Assert.assertEquals(
+          List.of(new Edge<>("1", "0"), new Edge<>("2", "0"), new Edge<>("2", "1")),
+          graph.getEdgesInInsertionOrder());
+    }
+
+    @Test
+    public void TY_51_compressed_smaller_than_csr() throws Exception {
+      final Set<String> verticies = new LinkedHashSet<>();
+      final Set<Edge<String>> edges = new LinkedHashSet<>();
+      // Equivalence classes of consecutive verticies, as in a clustered graph.
+      new GraphGenerator(GraphGenerator.Family.EQUIVALENCE_FIXED, 2000, 4, 281)
+          .generate(
+              (source, destination) -> {
+                verticies.add(Integer.toString(source));
+                verticies.add(Integer.toString(destination));
+                edges.add(new Edge<>(Integer.toString(source), Integer.toString(destination)));
+              });
+      final long csr =
+          new Graph<>(verticies, edges, Representation.CSR)
+              .getFootprint()
+              .getStructures()
+              .get("adjacency");
+      final Graph<String> compressed = new Graph<>(verticies, edges, Representation.COMPRESSED);
+      final long compressedBytes = compressed.getFootprint().getStructures().get("adjacency");
+      Assert.assertTrue(compressedBytes + " >= " + csr, compressedBytes < csr);
+      Assert.assertEquals(
+          new Graph<>(verticies, edges, Representation.CSR).getEdgesInInsertionOrder(),
+          compressed.getEdgesInInsertionOrder());
+    }
+
+    @Test
+    public void TY_52_copies_of_frozen_graph_edit_independently() throws Exception {
+      final Graph<String> published = new GraphCalculator("a.txt").getGraph().copy();
+      published.addEdge("5", "0");
+      Assert.assertFalse(published.isTransitive());
+      published.freeze();
+      final List<Edge<String>> edges = published.getEdgesInInsertionOrder();
+
+      // Each thread copies the published graph and adds an edge of its own to its copy.
+      final List<Thread> threads = new ArrayList<>();
+      final List<Graph<String>> copies = new ArrayList<>(Collections.nCopies(4, published));
+      for (int i = 0; i < 4; i++) {
+        final int index = i;
+        final String source = Integer.toString(i + 2);
+        threads.add(
+            new Thread(
+                () -> {
+                  final Graph<String> copy = published.copy();
+                  copy.addEdge(source, source);
+                  copies.set(index, copy);
+                }));
+      }
+      for (final Thread thread : threads) {
+        thread.start();
+      }
+      for (final Thread thread : threads) {
+        thread.join();
+      }
+
+      Assert.assertEquals(edges, published.getEdgesInInsertionOrder());
+      Assert.assertFalse(published.isReflexive());
+      for (int i = 0; i < 4; i++) {
+        final String source = Integer.toString(i + 2);
+        final List<Edge<String>> expected = new ArrayList<>(edges);
+        expected.add(new Edge<>(source, source));
+        Assert.assertEquals(expected, copies.get(i).getEdgesInInsertionOrder());
+        Assert.assertFalse(copies.get(i).isTransitive());
+      }
+    }
   }
 }
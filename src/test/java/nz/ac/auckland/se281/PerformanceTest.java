@@ -0,0 +1,247 @@
+package nz.ac.auckland.se281;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import nz.ac.auckland.se281.datastructures.Edge;
+import nz.ac.auckland.se281.datastructures.Graph;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Checks that key commands stay within their time and allocation budgets, so a performance
+ * regression fails the build.
+ *
+ * <p>Time budgets are the baseline in {@code src/test/resources/performance-baseline.properties}
+ * times a tolerance for slower machines, which {@code -Dperformance.tolerance} overrides. They
+ * still fail on a busy or much slower machine, so they are skipped unless {@code
+ * -Dperformance.timing=true} is given. Allocations do not depend on the machine, so their budgets
+ * are tight and always checked. Scaling checks need no
+ * baseline, as they compare the same operation on a graph sixteen times the size: linear work
+ * takes about sixteen times as long, and quadratic work at least 256. Each edge may cost several
+ * times more on the larger graph, as it no longer fits in the processor's caches, so linear work
+ * is allowed up to 128 times as long.
+ *
+ * <p>Run with {@code -Dperformance.baseline.update=true} to record the measurements as the new
+ * baseline instead of checking them, which takes the time measurements too.
+ */
+public class PerformanceTest {
+
+  private static final Path BASELINE =
+      Path.of("src", "test", "resources", "performance-baseline.properties");
+
+  private static final boolean UPDATING = Boolean.getBoolean("performance.baseline.update");
+
+  private static final boolean TIMING = UPDATING || Boolean.getBoolean("performance.timing");
+
+  private static final double TIME_TOLERANCE =
+      Double.parseDouble(System.getProperty("performance.tolerance", "3"));
+
+  private static final double ALLOCATION_TOLERANCE = 1.25;
+
+  /** How many times larger the larger graph of a scaling check is. */
+  private static final int SCALE = 16;
+
+  /** How many times more each edge may cost on the larger graph of a scaling check. */
+  private static final double MAX_SLOWDOWN_PER_EDGE = 8;
+
+  private static final int RUNS = 5;
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private static final Properties baseline = new Properties();
+
+  private static final Properties measured = new Properties();
+
+  @Rule public Timeout timeout = new Timeout(120, TimeUnit.SECONDS);
+
+  @BeforeClass
+  public static void setUpClass() throws IOException {
+    // Cached results would skip the work being measured.
+    System.setProperty(ResultCache.DIRECTORY_PROPERTY, "");
+
+    try (Reader reader = Files.newBufferedReader(BASELINE, StandardCharsets.UTF_8)) {
+      baseline.load(reader);
+    }
+  }
+
+  @AfterClass
+  public static void tearDownClass() throws IOException {
+    System.clearProperty(ResultCache.DIRECTORY_PROPERTY);
+
+    if (UPDATING) {
+      final Properties updated = new Properties();
+      updated.putAll(baseline);
+      updated.putAll(measured);
+      try (Writer writer = Files.newBufferedWriter(BASELINE, StandardCharsets.UTF_8)) {
+        updated.store(writer, "Recorded with -Dperformance.baseline.update=true");
+      }
+    }
+  }
+
+  @Test
+  public void P1_open_file_100k() throws Exception {
+    Assume.assumeTrue("Time budgets are only checked with -Dperformance.timing=true", TIMING);
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < 3; run++) {
+      final long start = System.nanoTime();
+      new GraphCalculator("test-100k.txt");
+      best = Math.min(best, System.nanoTime() - start);
+    }
+
+    assertWithinBaseline("open-file.test-100k.millis", best / 1e6, TIME_TOLERANCE);
+  }
+
+  @Test
+  public void P2_search_allocation_per_vertex() throws Exception {
+    final Graph<Integer> graph = generate(GraphGenerator.Family.POWER_LAW, 100_000, 5);
+    graph.iterativeBreadthFirstSearch();
+    graph.iterativeDepthFirstSearch();
+
+    long before = THREADS.getCurrentThreadAllocatedBytes();
+    graph.iterativeBreadthFirstSearch();
+    final double breadthFirst = (THREADS.getCurrentThreadAllocatedBytes() - before) / 100_000.0;
+
+    before = THREADS.getCurrentThreadAllocatedBytes();
+    graph.iterativeDepthFirstSearch();
+    final double depthFirst = (THREADS.getCurrentThreadAllocatedBytes() - before) / 100_000.0;
+
+    assertWithinBaseline("search.ibfs.bytes-per-vertex", breadthFirst, ALLOCATION_TOLERANCE);
+    assertWithinBaseline("search.idfs.bytes-per-vertex", depthFirst, ALLOCATION_TOLERANCE);
+  }
+
+  @Test
+  public void P3_transitivity_per_edge() throws Exception {
+    Assume.assumeTrue("Time budgets are only checked with -Dperformance.timing=true", TIMING);
+    // A closure is transitive, so every path is checked.
+    final Graph<Integer> graph = generate(GraphGenerator.Family.CLOSURE, 100_000, 4);
+    final long nanos = best(graph::isTransitive);
+
+    assertWithinBaseline(
+        "check-transitivity.nanos-per-edge",
+        (double) nanos / graph.getEdgeCount(),
+        TIME_TOLERANCE);
+  }
+
+  @Test
+  public void P4_transitivity_linear_in_edges() throws Exception {
+    assertLinear(
+        generate(GraphGenerator.Family.CLOSURE, 10_000, 4),
+        generate(GraphGenerator.Family.CLOSURE, 10_000 * SCALE, 4),
+        Graph::isTransitive);
+  }
+
+  @Test
+  public void P5_search_linear_in_edges() throws Exception {
+    assertLinear(
+        generate(GraphGenerator.Family.POWER_LAW, 10_000, 5),
+        generate(GraphGenerator.Family.POWER_LAW, 10_000 * SCALE, 5),
+        Graph::iterativeBreadthFirstSearch);
+  }
+
+  @Test
+  public void P6_equivalence_linear_in_edges() throws Exception {
+    assertLinear(
+        generate(GraphGenerator.Family.EQUIVALENCE_FIXED, 10_000, 5),
+        generate(GraphGenerator.Family.EQUIVALENCE_FIXED, 10_000 * SCALE, 5),
+        graph -> graph.getRelationProfile().isEquivalence());
+  }
+
+  /**
+   * Generates a graph into memory.
+   *
+   * @param family The family of the graph.
+   * @param verticies The number of verticies.
+   * @param parameter The parameter of the family.
+   * @return The graph.
+   * @throws IOException Never, as the edges are not written anywhere.
+   */
+  private static Graph<Integer> generate(
+      final GraphGenerator.Family family, final int verticies, final double parameter)
+      throws IOException {
+    final Set<Integer> vertexSet = new HashSet<>();
+    for (int vertex = 0; vertex < verticies; vertex++) {
+      vertexSet.add(vertex);
+    }
+    final Set<Edge<Integer>> edges = new LinkedHashSet<>();
+    new GraphGenerator(family, verticies, parameter, 281)
+        .generate((source, destination) -> edges.add(new Edge<>(source, destination)));
+    return new Graph<>(vertexSet, edges);
+  }
+
+  /**
+   * Returns the fastest of several runs of an operation, after one run to warm it up.
+   *
+   * @param operation The operation.
+   * @return The fastest time in nanoseconds.
+   */
+  private static long best(final Supplier<?> operation) {
+    operation.get();
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      final long start = System.nanoTime();
+      operation.get();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return best;
+  }
+
+  /**
+   * Asserts that an operation takes time linear in the number of edges, comparing a graph with
+   * one about {@link #SCALE} times its size.
+   *
+   * @param small The smaller graph.
+   * @param large The larger graph.
+   * @param operation The operation.
+   */
+  private static void assertLinear(
+      final Graph<Integer> small,
+      final Graph<Integer> large,
+      final Function<Graph<Integer>, ?> operation) {
+    final double edgeGrowth = (double) large.getEdgeCount() / small.getEdgeCount();
+    final double timeGrowth =
+        (double) best(() -> operation.apply(large)) / best(() -> operation.apply(small));
+
+    Assert.assertTrue(
+        "Took " + timeGrowth + " times as long on " + edgeGrowth + " times the edges",
+        timeGrowth <= MAX_SLOWDOWN_PER_EDGE * edgeGrowth);
+  }
+
+  /**
+   * Asserts that a measurement is within its baseline, or records it as the new baseline.
+   *
+   * @param key The measurement's key in the baseline.
+   * @param value The measurement.
+   * @param tolerance How many times the baseline the measurement may be.
+   */
+  private static void assertWithinBaseline(
+      final String key, final double value, final double tolerance) {
+    if (UPDATING) {
+      measured.setProperty(key, String.format(Locale.ROOT, "%.1f", value));
+      return;
+    }
+
+    final String expected = baseline.getProperty(key);
+    Assert.assertNotNull("No baseline for " + key, expected);
+    final double budget = Double.parseDouble(expected) * tolerance;
+    Assert.assertTrue(key + " was " + value + ", over its budget of " + budget, value <= budget);
+  }
+}